@@ -0,0 +1,40 @@
+/**
+ * FileName: BenchmarkMain.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+package bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line and,
+ * unless -rf or -rff say otherwise, writes the results as JSON to
+ * jmh-result.json so runs can be compared between releases.
+ */
+public class BenchmarkMain
+{
+    public static void main(String[] args) throws Exception
+    {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats())
+        {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        if (!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) options.result("jmh-result.json");
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * FileName: Core.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Access to the project classes from the benchmarks.
+ * The project classes live in the unnamed package, which JMH benchmarks
+ * cannot import, so their methods are looked up as method handles.
+ */
+final class Core
+{
+    private Core() { }
+
+    /**
+     * Loads a project class.
+     * @param cls the class name, with $ for nested classes.
+     * @return the class.
+     */
+    static Class<?> type(String cls)
+    {
+        try
+        {
+            return Class.forName(cls);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IllegalStateException("Cannot find " + cls, e);
+        }
+    }
+
+    /**
+     * Reads a static field of a project class.
+     * @param cls the class name.
+     * @param name the field name.
+     * @return the field's value.
+     */
+    static Object field(String cls, String name)
+    {
+        try
+        {
+            Class<?> c = type(cls);
+
+            return MethodHandles.privateLookupIn(c, MethodHandles.lookup()).findStaticVarHandle(c, name,
+                    c.getDeclaredField(name).getType()).get();
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot find " + cls + "." + name, e);
+        }
+    }
+
+    /**
+     * Looks up an instance method of a project class. Reference types in
+     * the handle's type are erased to Object, so that benchmarks can call
+     * it with invokeExact without naming project types.
+     * @param cls the class name.
+     * @param name the method name.
+     * @param rtype the return type.
+     * @param ptypes the parameter types.
+     * @return a handle to the method, receiver first.
+     */
+    static MethodHandle virtual(String cls, String name, Class<?> rtype, Class<?>... ptypes)
+    {
+        try
+        {
+            Class<?> c = type(cls);
+            MethodHandle h = MethodHandles.privateLookupIn(c, MethodHandles.lookup())
+                    .findVirtual(c, name, MethodType.methodType(rtype, ptypes));
+
+            return h.asType(h.type().erase());
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot find " + cls + "." + name, e);
+        }
+    }
+
+    /**
+     * Looks up a static method of a project class.
+     * @param cls the class name.
+     * @param name the method name.
+     * @param rtype the return type.
+     * @param ptypes the parameter types.
+     * @return a handle to the method.
+     */
+    static MethodHandle method(String cls, String name, Class<?> rtype, Class<?>... ptypes)
+    {
+        try
+        {
+            Class<?> c = type(cls);
+
+            return MethodHandles.privateLookupIn(c, MethodHandles.lookup())
+                    .findStatic(c, name, MethodType.methodType(rtype, ptypes));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot find " + cls + "." + name, e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * FileName: ECBenchmark.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ed448 point addition and scalar multiplication by 448-bit scalars,
+ * for the fixed generator G and for an arbitrary point, and the
+ * double-scalar multiplication b * P + a * G of signature verification.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ECBenchmark
+{
+    private static final Class<?> POINT = Core.type("EC$Point");
+    private static final MethodHandle ADD = Core.virtual("EC$Point", "add", POINT, POINT);
+    private static final MethodHandle MULT = Core.virtual("EC$Point", "mult", POINT, BigInteger.class);
+    private static final MethodHandle MULT_ADD = Core.virtual("EC$Point", "multAdd", POINT, BigInteger.class, BigInteger.class);
+
+    private Object G;
+    private Object P;
+    private Object Q;
+    private BigInteger k;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        SecureRandom random = new SecureRandom();
+
+        G = Core.field("EC", "G");
+        P = (Object) MULT.invokeExact(G, (Object) new BigInteger(446, random));
+        Q = (Object) MULT.invokeExact(G, (Object) new BigInteger(446, random));
+        k = new BigInteger(448, random);
+    }
+
+    @Benchmark
+    public Object add() throws Throwable
+    {
+        return (Object) ADD.invokeExact(P, Q);
+    }
+
+    @Benchmark
+    public Object multFixedBase() throws Throwable
+    {
+        return (Object) MULT.invokeExact(G, (Object) k);
+    }
+
+    @Benchmark
+    public Object multVariableBase() throws Throwable
+    {
+        return (Object) MULT.invokeExact(P, (Object) k);
+    }
+
+    @Benchmark
+    public Object multAdd() throws Throwable
+    {
+        return (Object) MULT_ADD.invokeExact(P, (Object) k, (Object) k);
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * FileName: FlowBenchmark.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ENCRYPT, SIGN and VERIFY commands end to end on a 1 KiB message.
+ * The commands write their output files to the working directory of the
+ * benchmark fork; their console output is discarded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlowBenchmark
+{
+    private static final MethodHandle ENCRYPT = Core.method("Main", "encrypt", void.class, String.class, String.class);
+    private static final MethodHandle KEY = Core.method("Main", "keyPair", void.class, String.class);
+    private static final MethodHandle SIGN = Core.method("Main", "sign", void.class, String.class, String.class);
+    private static final MethodHandle VERIFY = Core.method("Main", "verify",
+            void.class, String.class, String.class, String.class);
+
+    private static final String PW = "passphrase";
+
+    private PrintStream out;
+    private Path message;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        byte[] m = new byte[1024];
+
+        new Random(1).nextBytes(m);
+        message = Files.createTempFile("flow", ".bin");
+        Files.write(message, m);
+
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        KEY.invokeExact(PW);
+        SIGN.invokeExact(PW, message.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        System.setOut(out);
+        Files.deleteIfExists(message);
+    }
+
+    @Benchmark
+    public void encrypt() throws Throwable
+    {
+        ENCRYPT.invokeExact(PW, message.toString());
+    }
+
+    @Benchmark
+    public void sign() throws Throwable
+    {
+        SIGN.invokeExact(PW, message.toString());
+    }
+
+    @Benchmark
+    public void verify() throws Throwable
+    {
+        VERIFY.invokeExact("./public.key", message.toString(), "./signature.txt");
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * FileName: KMACBenchmark.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KMACXOF256 512-bit tag generation over short records, one at a time
+ * and as a batch of 1000 records under the same key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KMACBenchmark
+{
+    private static final MethodHandle TAG = Core.method("DF", "KMACXOF256",
+            byte[].class, byte[].class, byte[].class, int.class, byte[].class);
+    private static final MethodHandle BATCH = Core.method("DF", "KMACXOF256",
+            byte[][].class, byte[].class, byte[][].class, int.class, byte[].class);
+
+    @Param({"100", "500"})
+    public int size;
+
+    private final byte[] K = "passphrase".getBytes(StandardCharsets.UTF_8);
+    private final byte[] S = "T".getBytes(StandardCharsets.UTF_8);
+    private byte[] X;
+    private byte[][] records;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(size);
+
+        X = new byte[size];
+        random.nextBytes(X);
+
+        records = new byte[1000][size];
+        for (byte[] record : records) random.nextBytes(record);
+    }
+
+    @Benchmark
+    public byte[] tag() throws Throwable
+    {
+        return (byte[]) TAG.invokeExact(K, X, 64, S);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public byte[][] batchTag() throws Throwable
+    {
+        return (byte[][]) BATCH.invokeExact(K, records, 64, S);
+    }
+}
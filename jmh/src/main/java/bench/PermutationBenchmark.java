@@ -0,0 +1,63 @@
+/**
+ * FileName: PermutationBenchmark.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One KECCAK-f[1600]: the dispatching SHA3.KECCAK_p, the scalar lane
+ * engine, the Vector API backend and the two-state interleaved engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class PermutationBenchmark
+{
+    private static final MethodHandle SCALAR = Core.method("SHA3", "KECCAK_p_scalar", void.class, long[].class);
+    private static final MethodHandle VECTOR = Core.method("SHA3V", "KECCAK_p", void.class, long[].class);
+    private static final MethodHandle DISPATCH = Core.method("SHA3", "KECCAK_p", void.class, long[].class);
+    private static final MethodHandle PAIR = Core.method("SHA3", "KECCAK_p", void.class, long[].class, long[].class);
+
+    private final long[] A = new long[25];
+    private final long[] E = new long[25];
+
+    @Benchmark
+    public long[] KECCAK_p() throws Throwable
+    {
+        DISPATCH.invokeExact(A);
+        return A;
+    }
+
+    @Benchmark
+    public long[] scalar() throws Throwable
+    {
+        SCALAR.invokeExact(A);
+        return A;
+    }
+
+    @Benchmark
+    public long[] vector() throws Throwable
+    {
+        VECTOR.invokeExact(A);
+        return A;
+    }
+
+    @Benchmark
+    public long[] interleavedPair() throws Throwable
+    {
+        PAIR.invokeExact(A, E);
+        return E;
+    }
+}
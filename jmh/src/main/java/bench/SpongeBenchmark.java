@@ -0,0 +1,47 @@
+/**
+ * FileName: SpongeBenchmark.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SHAKE256 over byte messages of increasing size, 64 bytes of output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpongeBenchmark
+{
+    private static final MethodHandle SHAKE256 = Core.method("SHA3", "SHAKE256", byte[].class, byte[].class, int.class);
+
+    @Param({"0", "64", "1024", "1048576"})
+    public int size;
+
+    private byte[] M;
+
+    @Setup
+    public void setup()
+    {
+        M = new byte[size];
+        new Random(size).nextBytes(M);
+    }
+
+    @Benchmark
+    public byte[] SHAKE256() throws Throwable
+    {
+        return (byte[]) SHAKE256.invokeExact(M, 64);
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * FileName: BitString.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+import java.util.Arrays;
+
+/**
+ * An immutable string of bits, packed 64 to a long. Bit i of the string
+ * is bit (i mod 64), counted from the least significant bit, of word
+ * i / 64. This is the order of IF.bitsToBytes read as little-endian
+ * lanes, so converting to and from bytes is a straight copy. Bits past
+ * the length are always zero.
+ */
+final class BitString
+{
+    /**
+     * The string of length zero.
+     */
+    static final BitString EMPTY = new BitString(new long[0], 0);
+
+    /**
+     * The packed bits, words(n) of them.
+     */
+    private final long[] w;
+    /**
+     * The number of bits.
+     */
+    private final int n;
+
+    /**
+     * Wraps packed bits without copying.
+     *
+     * @param w the packed bits, words(n) of them, zero past bit n.
+     * @param n the number of bits.
+     */
+    private BitString(long[] w, int n)
+    {
+        this.w = w;
+        this.n = n;
+    }
+
+    /**
+     * Parses a string of '0' and '1' characters. A character other than
+     * '0' is a one bit, as in IF.bitsToBytes.
+     *
+     * @param s the string.
+     * @return the bit string.
+     */
+    static BitString of(String s)
+    {
+        long[] w = new long[words(s.length())];
+
+        for (int i = 0; i < s.length(); i++)    if (s.charAt(i) != '0') w[i >>> 6] |= 1L << (i & 63);
+
+        return new BitString(w, s.length());
+    }
+
+    /**
+     * The bits of a byte array, bit (i mod 8) of byte i / 8 first.
+     *
+     * @param B the bytes.
+     * @return the bit string of length 8 * B.length.
+     */
+    static BitString of(byte[] B)
+    {
+        return of(B, 8 * B.length);
+    }
+
+    /**
+     * The first n bits of a byte array, the inverse of toBytes.
+     *
+     * @param B the bytes, at least (n + 7) / 8 of them.
+     * @param n the number of bits.
+     * @return the bit string of length n.
+     */
+    static BitString of(byte[] B, int n)
+    {
+        long[] w = new long[words(n)];
+
+        for (int i = 0; i < (n + 7) >>> 3; i++) w[i >>> 3] |= (B[i] & 0xFFL) << (8 * (i & 7));
+
+        return new BitString(mask(w, n), n);
+    }
+
+    /**
+     * A string of zero bits.
+     *
+     * @param n the number of bits.
+     * @return the bit string.
+     */
+    static BitString zeros(int n)
+    {
+        return new BitString(new long[words(n)], n);
+    }
+
+    /**
+     * A string of one bits.
+     *
+     * @param n the number of bits.
+     * @return the bit string.
+     */
+    static BitString ones(int n)
+    {
+        long[] w = new long[words(n)];
+
+        Arrays.fill(w, -1L);
+
+        return new BitString(mask(w, n), n);
+    }
+
+    /**
+     * The number of bits.
+     *
+     * @return the length.
+     */
+    int length()
+    {
+        return n;
+    }
+
+    /**
+     * One bit of the string.
+     *
+     * @param i the index, below length().
+     * @return true IFF bit i is one.
+     */
+    boolean get(int i)
+    {
+        if (i < 0 || i >= n)    throw new IndexOutOfBoundsException(i);
+
+        return ((w[i >>> 6] >>> (i & 63)) & 1) != 0;
+    }
+
+    /**
+     * This string followed by another. When this string's length is a
+     * multiple of 64 the other's words are copied as they are; otherwise
+     * each is shifted into place, one word at a time.
+     *
+     * @param b the string to append.
+     * @return this || b.
+     */
+    BitString append(BitString b)
+    {
+        if (b.n == 0)   return this;
+        if (n == 0)     return b;
+
+        long[] z = Arrays.copyOf(w, words(n + b.n));
+        int base = n >>> 6, shift = n & 63;
+
+        if (shift == 0) System.arraycopy(b.w, 0, z, base, b.w.length);
+        else
+        {
+            for (int i = 0; i < b.w.length; i++)
+            {
+                z[base + i] |= b.w[i] << shift;
+                if (base + i + 1 < z.length)    z[base + i + 1] |= b.w[i] >>> (64 - shift);
+            }
+        }
+
+        return new BitString(z, n + b.n);
+    }
+
+    /**
+     * XORs this string with another, over the length of the shorter.
+     *
+     * @param b the other string.
+     * @return this ^ b, as long as the shorter of the two.
+     */
+    BitString xor(BitString b)
+    {
+        int m = Math.min(n, b.n);
+        long[] z = new long[words(m)];
+
+        for (int i = 0; i < z.length; i++)  z[i] = w[i] ^ b.w[i];
+
+        return new BitString(mask(z, m), m);
+    }
+
+    /**
+     * The first m bits of this string.
+     *
+     * @param m the number of bits, at most length().
+     * @return the truncated string.
+     */
+    BitString truncate(int m)
+    {
+        if (m < 0 || m > n)     throw new IndexOutOfBoundsException(m);
+        if (m == n)             return this;
+
+        return new BitString(mask(Arrays.copyOf(w, words(m)), m), m);
+    }
+
+    /**
+     * Packs the string into bytes, the inverse of of(byte[], int). A
+     * partial last byte is zero-filled.
+     *
+     * @return (length() + 7) / 8 bytes.
+     */
+    byte[] toBytes()
+    {
+        byte[] B = new byte[(n + 7) >>> 3];
+
+        for (int i = 0; i < B.length; i++)  B[i] = (byte) (w[i >>> 3] >>> (8 * (i & 7)));
+
+        return B;
+    }
+
+    /**
+     * The string as '0' and '1' characters.
+     *
+     * @return the characters.
+     */
+    public String toString()
+    {
+        char[] c = new char[n];
+
+        for (int i = 0; i < n; i++) c[i] = ((w[i >>> 6] >>> (i & 63)) & 1) == 0 ? '0' : '1';
+
+        return new String(c);
+    }
+
+    /**
+     * Compares two bit strings.
+     *
+     * @param o the other object.
+     * @return true IFF o is a bit string with the same bits.
+     */
+    public boolean equals(Object o)
+    {
+        if (this == o)  return true;
+        if (!(o instanceof BitString)) return false;
+
+        return n == ((BitString) o).n && Arrays.equals(w, ((BitString) o).w);
+    }
+
+    /**
+     * Hash code consistent with equals.
+     *
+     * @return the hash code.
+     */
+    public int hashCode()
+    {
+        return 31 * Arrays.hashCode(w) + n;
+    }
+
+    /**
+     * The number of words holding n bits.
+     *
+     * @param n the number of bits.
+     * @return the number of words.
+     */
+    private static int words(int n)
+    {
+        return (n + 63) >>> 6;
+    }
+
+    /**
+     * Clears the bits of the last word past bit n.
+     *
+     * @param w the words, words(n) of them.
+     * @param n the number of bits.
+     * @return w.
+     */
+    private static long[] mask(long[] w, int n)
+    {
+        if ((n & 63) != 0)  w[w.length - 1] &= (1L << (n & 63)) - 1;
+
+        return w;
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * FileName: Client.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thin client for Daemon. It uses nothing from the rest of the project,
+ * so it starts as fast as the JVM does.
+ *
+ *   java Client socket COMMAND args...
+ *      runs one command, as java Main COMMAND args... would.
+ *   java Client socket
+ *      reads one command per line from standard input, with arguments
+ *      separated by whitespace, and pipelines them all over a single
+ *      connection, printing the results in order. Pipelined commands
+ *      may run concurrently, so they should not depend on each other's
+ *      files.
+ *
+ * The exit status is 1 if any command failed, or if the daemon closed
+ * the connection before answering every command, as it does for a
+ * caller running as another user.
+ */
+public final class Client
+{
+    /**
+     * Runs commands on a daemon.
+     *
+     * @param args the daemon's socket path, then optionally one command.
+     * @throws IOException if the daemon cannot be reached.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int status = run(args);
+
+        if (status != 0)    System.exit(status);
+    }
+
+    /**
+     * Runs commands on a daemon, printing their output.
+     *
+     * @param args the daemon's socket path, then optionally one command.
+     * @return the exit status: 0 if every command was answered and
+     *          completed, otherwise 1.
+     * @throws IOException if the daemon cannot be reached.
+     */
+    static int run(String... args) throws IOException
+    {
+        UnixDomainSocketAddress address = address(args[0]);
+        String dir = Paths.get("").toAbsolutePath().toString();
+        AtomicInteger sent = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        int received;
+
+        try (SocketChannel ch = SocketChannel.open(address))
+        {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(Channels.newReader(ch, StandardCharsets.UTF_8));   // Not newInputStream, which would lock out the sender
+            Thread sender;
+
+            if (args.length > 1)
+            {
+                String request = request(dir, Arrays.copyOfRange(args, 1, args.length));
+
+                sent.incrementAndGet();
+                sender = null;
+
+                try
+                {
+                    out.write(request);
+                    out.flush();
+                    ch.shutdownOutput();
+                }
+                catch (IOException e)
+                {
+                    // The daemon closed the connection; counted as a missing response below.
+                }
+            }
+            else
+            {
+                sender = new Thread(() -> send(dir, out, ch, sent, failed));
+                sender.start();
+            }
+
+            received = receive(in, failed);
+
+            if (sender != null)
+            {
+                try
+                {
+                    sender.join();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        if (received < sent.get())
+        {
+            System.err.println("The daemon answered " + received + " of " + sent.get() + " requests.");
+            failed.set(true);
+        }
+
+        return failed.get() ? 1 : 0;
+    }
+
+    /**
+     * Prints the responses of a connection until it ends.
+     *
+     * @param in the connection.
+     * @param failed set if a command failed.
+     * @return the number of complete responses.
+     */
+    private static int receive(BufferedReader in, AtomicBoolean failed)
+    {
+        int received = 0;
+
+        try
+        {
+            for (String header; (header = in.readLine()) != null; received++)
+            {
+                String[] h = header.split(" ");
+                boolean ok = h[0].equals("OK");
+
+                for (int i = Integer.parseInt(h[1]); i > 0; i--)
+                {
+                    String line = in.readLine();
+
+                    if (line == null)   throw new EOFException("Response cut off.");
+
+                    if (ok) System.out.println(line);
+                    else System.err.println(line);
+                }
+                if (!ok)    failed.set(true);
+            }
+        }
+        catch (IOException e)
+        {
+            // The daemon closed or reset the connection; a response cut
+            // off here is not counted, so it shows as missing.
+        }
+
+        return received;
+    }
+
+    /**
+     * Parses a daemon address, the path of its Unix-domain socket.
+     *
+     * @param address the address.
+     * @return the socket address.
+     */
+    static UnixDomainSocketAddress address(String address)
+    {
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    /**
+     * Formats a request line: the working directory and the command's
+     * arguments, separated by tabs.
+     *
+     * @param dir the working directory.
+     * @param args the command and its arguments.
+     * @return the request line, with its newline.
+     * @throws IllegalArgumentException if the directory or an argument
+     *          holds a tab or a line break, which would split it.
+     */
+    static String request(String dir, String... args)
+    {
+        String separators = "(?s).*[\t\r\n].*";
+
+        if (dir.matches(separators) || Arrays.stream(args).anyMatch(a -> a.matches(separators)))
+            throw new IllegalArgumentException("Tabs and line breaks cannot be sent to the daemon.");
+
+        return dir + "\t" + String.join("\t", args) + "\n";
+    }
+
+    /**
+     * Sends one request per line of standard input, without waiting for
+     * the responses, then closes the sending half of the connection.
+     *
+     * @param dir the working directory.
+     * @param out the connection.
+     * @param ch the channel under out.
+     * @param sent counts the requests sent or attempted.
+     * @param failed set if a request could not be formatted.
+     */
+    private static void send(String dir, BufferedWriter out, SocketChannel ch, AtomicInteger sent, AtomicBoolean failed)
+    {
+        BufferedReader commands = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        try
+        {
+            for (String line; (line = commands.readLine()) != null; )
+            {
+                String[] args = line.trim().split("\\s+");
+
+                if (args[0].isEmpty())  continue;
+
+                String request;
+
+                try
+                {
+                    request = request(dir, args);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    System.err.println(e.getMessage());
+                    failed.set(true);
+                    break;
+                }
+                sent.incrementAndGet();
+                out.write(request);
+            }
+            out.flush();
+            ch.shutdownOutput();
+        }
+        catch (IOException e)
+        {
+            // The daemon closed the connection; the requests it did not
+            // answer are counted as missing responses.
+        }
+    }
+}
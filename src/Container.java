@@ -0,0 +1,413 @@
+/**
+ * FileName: Container.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Versioned binary container for the files written by Main. Every file
+ * starts with the magic "T487", a version byte and a type byte, then
+ * holds the fields of its type in a fixed order:
+ *
+ *   PUBLIC_KEY     V (57)
+ *   PRIVATE_KEY    z (64) | length (8) | c (65) | t (64)
+ *   CRYPTOGRAM     z (64) | length (8) | c (length) | t (64)
+ *   EC_CRYPTOGRAM  Z (57) | length (8) | c (length) | t (64)
+ *   SIGNATURE      h (64) | z (56) | U (57)
+ *
+ * Points use the encoding of EC.Point.encode; integers are big-endian.
+ * Writer and Reader stream the fields over NIO channels through a
+ * fixed buffer, so a length-prefixed ciphertext can be passed through
+ * in pieces.
+ */
+final class Container
+{
+    /**
+     * The first four bytes of every container.
+     */
+    static final byte[] MAGIC = {'T', '4', '8', '7'};
+    /**
+     * The format version written by Writer and accepted by Reader.
+     */
+    static final int VERSION = 1;
+    /**
+     * Container types.
+     */
+    static final int PUBLIC_KEY = 1, PRIVATE_KEY = 2, CRYPTOGRAM = 3, EC_CRYPTOGRAM = 4, SIGNATURE = 5;
+    /**
+     * Byte length of the random z of a cryptogram and of tags and
+     * signature hashes.
+     */
+    static final int NONCE_BYTES = 64, TAG_BYTES = 64;
+    /**
+     * Byte length of a scalar mod r.
+     */
+    static final int SCALAR_BYTES = 56;
+    /**
+     * Byte length of a private key s = 4 * (512-bit integer).
+     */
+    static final int PRIVATE_BYTES = 65;
+    /**
+     * Size of the channel buffers.
+     */
+    static final int BUFFER = 1 << 16;
+
+    /**
+     * Writes a container to a channel.
+     */
+    static final class Writer implements Closeable
+    {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+
+        /**
+         * Starts a container of the given type on a channel.
+         *
+         * @param channel the channel, closed with this writer.
+         * @param type the container type.
+         */
+        Writer(WritableByteChannel channel, int type)
+        {
+            this.channel = channel;
+            buffer.put(MAGIC).put((byte) VERSION).put((byte) type);
+        }
+
+        /**
+         * Starts a container of the given type in a new or truncated file.
+         *
+         * @param f the file.
+         * @param type the container type.
+         * @return the writer.
+         * @throws IOException if the file cannot be opened.
+         */
+        static Writer create(Path f, int type) throws IOException
+        {
+            return new Writer(FileChannel.open(f, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING), type);
+        }
+
+        /**
+         * Writes bytes.
+         *
+         * @param B the bytes.
+         * @param off the offset in B.
+         * @param len the number of bytes.
+         * @return this writer.
+         * @throws IOException if the channel fails.
+         */
+        Writer put(byte[] B, int off, int len) throws IOException
+        {
+            while (len > 0)
+            {
+                int n = Math.min(len, buffer.remaining());
+
+                buffer.put(B, off, n);
+                off += n;
+                len -= n;
+                if (!buffer.hasRemaining()) flush();
+            }
+
+            return this;
+        }
+
+        /**
+         * Writes bytes.
+         *
+         * @param B the bytes.
+         * @return this writer.
+         * @throws IOException if the channel fails.
+         */
+        Writer put(byte[] B) throws IOException
+        {
+            return put(B, 0, B.length);
+        }
+
+        /**
+         * Writes an 8-byte length.
+         *
+         * @param v the length.
+         * @return this writer.
+         * @throws IOException if the channel fails.
+         */
+        Writer putLong(long v) throws IOException
+        {
+            if (buffer.remaining() < Long.BYTES)    flush();
+            buffer.putLong(v);
+
+            return this;
+        }
+
+        /**
+         * Writes a non-negative integer in a fixed number of bytes.
+         *
+         * @param s the integer, below 2^(8 len).
+         * @param len the number of bytes.
+         * @return this writer.
+         * @throws IOException if the channel fails.
+         */
+        Writer putScalar(BigInteger s, int len) throws IOException
+        {
+            return put(toBytes(s, len));
+        }
+
+        /**
+         * Writes a point in its ENCODED_LENGTH-byte encoding.
+         *
+         * @param P the point.
+         * @return this writer.
+         * @throws IOException if the channel fails.
+         */
+        Writer putPoint(EC.Point P) throws IOException
+        {
+            return put(P.encode());
+        }
+
+        /**
+         * Writes out the buffered bytes.
+         *
+         * @throws IOException if the channel fails.
+         */
+        void flush() throws IOException
+        {
+            buffer.flip();
+            while (buffer.hasRemaining())   channel.write(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * Writes out the buffered bytes and closes the channel.
+         *
+         * @throws IOException if the channel fails.
+         */
+        public void close() throws IOException
+        {
+            try
+            {
+                flush();
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a container from a channel.
+     */
+    static final class Reader implements Closeable
+    {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER).flip();
+
+        /**
+         * Reads and checks the header of a container on a channel.
+         *
+         * @param channel the channel, closed with this reader.
+         * @param type the expected container type.
+         * @throws IOException if the header is not that of a container of
+         *          this version and type.
+         */
+        Reader(ReadableByteChannel channel, int type) throws IOException
+        {
+            this.channel = channel;
+
+            byte[] H = new byte[MAGIC.length + 2];
+            get(H, 0, H.length);
+
+            if (!Arrays.equals(H, 0, MAGIC.length, MAGIC, 0, MAGIC.length))
+                throw new IOException("Not a container file.");
+            if (H[MAGIC.length] != VERSION)
+                throw new IOException("Unsupported container version " + H[MAGIC.length] + ".");
+            if (H[MAGIC.length + 1] != type)
+                throw new IOException("Container holds type " + H[MAGIC.length + 1] + ", expected " + type + ".");
+        }
+
+        /**
+         * Opens a container file and checks its header.
+         *
+         * @param f the file.
+         * @param type the expected container type.
+         * @return the reader.
+         * @throws IOException if the file cannot be read or is not a
+         *          container of this version and type.
+         */
+        static Reader open(Path f, int type) throws IOException
+        {
+            FileChannel channel = FileChannel.open(f, StandardOpenOption.READ);
+
+            try
+            {
+                return new Reader(channel, type);
+            }
+            catch (IOException e)
+            {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Reads exactly len bytes.
+         *
+         * @param B the destination.
+         * @param off the offset in B.
+         * @param len the number of bytes.
+         * @return this reader.
+         * @throws IOException if the channel fails or ends first.
+         */
+        Reader get(byte[] B, int off, int len) throws IOException
+        {
+            while (len > 0)
+            {
+                if (!buffer.hasRemaining()) fill();
+
+                int n = Math.min(len, buffer.remaining());
+
+                buffer.get(B, off, n);
+                off += n;
+                len -= n;
+            }
+
+            return this;
+        }
+
+        /**
+         * Reads exactly n bytes.
+         *
+         * @param n the number of bytes.
+         * @return the bytes.
+         * @throws IOException if the channel fails or ends first.
+         */
+        byte[] get(int n) throws IOException
+        {
+            byte[] B = new byte[n];
+
+            get(B, 0, n);
+
+            return B;
+        }
+
+        /**
+         * The number of bytes left to read, if the channel is a file.
+         *
+         * @return the bytes between the read position and the end of the
+         *          file, or -1 if the channel's length is not known.
+         * @throws IOException if the file's size cannot be read.
+         */
+        long remaining() throws IOException
+        {
+            if (!(channel instanceof FileChannel))  return -1;
+
+            FileChannel f = (FileChannel) channel;
+
+            return f.size() - f.position() + buffer.remaining();
+        }
+
+        /**
+         * Reads an 8-byte length.
+         *
+         * @return the length, not negative.
+         * @throws IOException if the channel fails or ends first, or the
+         *          length is negative.
+         */
+        long getLong() throws IOException
+        {
+            byte[] B = get(Long.BYTES);
+            long v = ByteBuffer.wrap(B).getLong();
+
+            if (v < 0)  throw new IOException("Negative length in container.");
+
+            return v;
+        }
+
+        /**
+         * Reads a non-negative integer stored in a fixed number of bytes.
+         *
+         * @param len the number of bytes.
+         * @return the integer.
+         * @throws IOException if the channel fails or ends first.
+         */
+        BigInteger getScalar(int len) throws IOException
+        {
+            return new BigInteger(1, get(len));
+        }
+
+        /**
+         * Reads and decodes a point.
+         *
+         * @return the point.
+         * @throws IOException if the channel fails or ends first, or the
+         *          bytes do not encode a point on the curve.
+         */
+        EC.Point getPoint() throws IOException
+        {
+            try
+            {
+                return EC.Point.decode(get(EC.ENCODED_LENGTH), 0);
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Refills the buffer from the channel.
+         *
+         * @throws IOException if the channel fails or has ended.
+         */
+        private void fill() throws IOException
+        {
+            buffer.clear();
+            int n = 0;
+
+            while (n == 0)  n = channel.read(buffer);
+            buffer.flip();
+
+            if (n < 0)  throw new EOFException("Container file is truncated.");
+        }
+
+        /**
+         * Closes the channel.
+         *
+         * @throws IOException if the channel fails.
+         */
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Big-endian bytes of a non-negative integer, in a fixed length.
+     *
+     * @param s the integer, below 2^(8 len).
+     * @param len the number of bytes.
+     * @return the bytes.
+     */
+    static byte[] toBytes(BigInteger s, int len)
+    {
+        byte[] e = s.toByteArray();
+        byte[] B = new byte[len];
+        int n = Math.min(e.length, len);
+
+        System.arraycopy(e, e.length - n, B, len - n, n);
+
+        return B;
+    }
+}
@@ -6,11 +6,60 @@
  * @version 1.0.050723
  */
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Functions derived from the SHA-3 Standard.
  */
 public class DF {
 
+    /**
+     * The KMAC function-name bytes.
+     */
+    private static final byte[] KMAC_NAME = {'K', 'M', 'A', 'C'};
+    /**
+     * The ParallelHash function-name bytes.
+     */
+    private static final byte[] PARALLEL_HASH_NAME = {'P', 'a', 'r', 'a', 'l', 'l', 'e', 'l', 'H', 'a', 's', 'h'};
+    /**
+     * Fewest input bytes a ParallelHash task splits further across the pool.
+     */
+    private static final int PARALLEL_GRAIN = 1 << 16;
+    /**
+     * Most keyed KMAC prefixes kept by KMAC.cached.
+     */
+    static final int KEYED_CACHE_SIZE = 64;
+    /**
+     * Keyed KMAC prefixes by key and customization, least recently used
+     * first. Keys may be secret: an evicted entry has its prefix state
+     * and its copy of the key zeroed, and clearCache zeroes them all.
+     */
+    private static final Map<Keying, KMAC> KEYED = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Keying, KMAC> eldest)
+        {
+            if (size() <= KEYED_CACHE_SIZE) return false;
+
+            eldest.getValue().clear();
+            eldest.getKey().clear();
+            return true;
+        }
+    };
+    /**
+     * Reads byte[] contents as little-endian lanes.
+     */
+    private static final VarHandle LANE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
     /**
      * 256-bit security. Only reasonably supports input and output string lengths
      * that are whole bytes. Defined in terms of SHAKE256 and KECCAK[512].
@@ -22,10 +71,76 @@ public class DF {
      */
     static String cSHAKE256(String X, int L, String N, String S)
     {
-        if (N.equals("") & S.equals("")) return SHA3.SHAKE256(X, L);
+        return cSHAKE256(BitString.of(X), L, BitString.of(N), BitString.of(S)).toString();
+    }
+
+    /**
+     * Bit string cSHAKE256.
+     * @param X the main input bits.
+     * @param L the requested output length in bits.
+     * @param N the function-name bits.
+     * @param S the customization bits.
+     * @return L bits of output.
+     */
+    static BitString cSHAKE256(BitString X, int L, BitString N, BitString S)
+    {
+        if (N.length() == 0 && S.length() == 0) return SHA3.SHAKE256(X, L);
+
+        return SHA3.KECCAK(IF.bytepad(IF.encode_string(N).append(IF.encode_string(S)), 136)
+                .append(X).append(BitString.zeros(2)), L);
+    }
+
+    /**
+     * Byte-oriented cSHAKE256.
+     * @param X the main input bytes of any length, including zero.
+     * @param L the requested output length in bytes.
+     * @param N the function-name bytes.
+     * @param S the customization bytes.
+     * @return L bytes of output.
+     */
+    static byte[] cSHAKE256(byte[] X, int L, byte[] N, byte[] S)
+    {
+        byte[] Z = new byte[L];
+
+        cSHAKE256(N, S).absorb(X, 0, X.length).squeeze(Z, 0, L);
+
+        return Z;
+    }
+
+    /**
+     * Incremental cSHAKE256. Returns a sponge that has absorbed
+     * bytepad(encode_string(N) || encode_string(S), 136) and is ready
+     * for the main input. With N and S both empty this is SHAKE256.
+     * @param N the function-name bytes.
+     * @param S the customization bytes.
+     * @return the sponge.
+     */
+    static SHA3.Sponge cSHAKE256(byte[] N, byte[] S)
+    {
+        if (N.length == 0 && S.length == 0) return new SHA3.Sponge(SHA3.SHAKE);
+
+        byte[] z = cSHAKEPrefix(N, S);
+
+        return new SHA3.Sponge(SHA3.CSHAKE).absorb(z, 0, z.length);
+    }
+
+    /**
+     * The first blocks cSHAKE256 absorbs for a non-empty N or S:
+     * bytepad(encode_string(N) || encode_string(S), 136).
+     * @param N the function-name bytes.
+     * @param S the customization bytes.
+     * @return the padded prefix.
+     */
+    private static byte[] cSHAKEPrefix(byte[] N, byte[] S)
+    {
+        byte[] n = IF.encode_string(N);
+        byte[] s = IF.encode_string(S);
+        byte[] ns = new byte[n.length + s.length];
+
+        System.arraycopy(n, 0, ns, 0, n.length);
+        System.arraycopy(s, 0, ns, n.length, s.length);
 
-        return SHA3.KECCAK(IF.bytepad(IF.encode_string(N).concat(IF
-                .encode_string(S)), 136).concat(X).concat("00"), L);
+        return IF.bytepad(ns, SHA3.rb);
     }
 
     /**
@@ -40,9 +155,566 @@ public class DF {
      */
     static String KMACXOF256(String K, String X, int L, String S)
     {
-        String newX = IF.bytepad(IF.encode_string(K), 136).concat(X)
-                .concat(IF.right_encode(0));
+        return KMACXOF256(BitString.of(K), BitString.of(X), L, BitString.of(S)).toString();
+    }
+
+    /**
+     * Bit string KMACXOF256.
+     * @param K the key bits.
+     * @param X the main input bits.
+     * @param L the requested output length in bits.
+     * @param S the customization bits.
+     * @return L bits of output.
+     */
+    static BitString KMACXOF256(BitString K, BitString X, int L, BitString S)
+    {
+        BitString newX = IF.bytepad(IF.encode_string(K), 136).append(X).append(IF.right_encode_bits(0));
+
+        return cSHAKE256(newX, L, BitString.of(KMAC_NAME), S);
+    }
+
+    /**
+     * Byte-oriented KMACXOF256.
+     * @param K the key bytes of any length, including zero.
+     * @param X the main input bytes of any length, including zero.
+     * @param L the requested output length in bytes.
+     * @param S the customization bytes.
+     * @return L bytes of output.
+     */
+    static byte[] KMACXOF256(byte[] K, byte[] X, int L, byte[] S)
+    {
+        KMAC mac = KMAC.local(K, S);
+        byte[] Z = mac.update(X, 0, X.length).squeeze(L);
+
+        mac.clear();
+
+        return Z;
+    }
+
+    /**
+     * Batch KMACXOF256. Computes the tags of many messages under one key and
+     * customization. The keyed prefix is absorbed once and shared, and the
+     * messages are absorbed two at a time by the interleaved permutation
+     * SHA3.KECCAK_p(long[], long[]). Messages are paired by length so that
+     * the two states of a pair finish absorbing close together.
+     * @param K the key bytes of any length, including zero.
+     * @param X the messages.
+     * @param L the requested output length in bytes.
+     * @param S the customization bytes.
+     * @return the L-byte tag of each message, in the order of X.
+     */
+    static byte[][] KMACXOF256(byte[] K, byte[][] X, int L, byte[] S)
+    {
+        KMAC prefix = new KMAC(K, S);
+        long[] keyed = prefix.sponge.A;                 // State after the key block, at a block boundary
+        byte[][] Z = new byte[X.length][];
+        int[] order = new int[X.length];
+        long[] sorted = new long[X.length];                 // Message lengths and indices packed together
+        long[] A = new long[25];
+        long[] E = new long[25];
+        byte[] block = new byte[SHA3.rb];
+
+        for (int i = 0; i < X.length; i++) sorted[i] = ((long) X[i].length << 32) | i;
+        Arrays.sort(sorted);
+        for (int i = 0; i < X.length; i++) order[i] = (int) sorted[i];
+
+        for (int g = 0; g < X.length; g += 2)
+        {
+            byte[] M = X[order[g]];
+            byte[] N = (g + 1 < X.length) ? X[order[g + 1]] : null;
+            int m = (M.length + 2) / SHA3.rb + 1;                       // Blocks of the shorter message
+            int n = (N == null) ? 0 : (N.length + 2) / SHA3.rb + 1;    // Blocks of the longer message
+            int t = 0;
+
+            System.arraycopy(keyed, 0, A, 0, 25);
+            System.arraycopy(keyed, 0, E, 0, 25);
+
+            for (; t < m && t < n; t++)
+            {
+                xorBlock(A, M, t, block);
+                xorBlock(E, N, t, block);
+                SHA3.KECCAK_p(A, E);
+            }
+
+            for (; t < m; t++)
+            {
+                xorBlock(A, M, t, block);
+                SHA3.KECCAK_p(A);
+            }
+
+            for (; t < n; t++)
+            {
+                xorBlock(E, N, t, block);
+                SHA3.KECCAK_p(E);
+            }
+
+            Z[order[g]] = new byte[L];
+            SHA3.squeeze(A, 0, Z[order[g]], 0, L);
+
+            if (N != null)
+            {
+                Z[order[g + 1]] = new byte[L];
+                SHA3.squeeze(E, 0, Z[order[g + 1]], 0, L);
+            }
+        }
+
+        prefix.clear();
+        Arrays.fill(A, 0L);
+        Arrays.fill(E, 0L);
+
+        return Z;
+    }
+
+    /**
+     * XORs one rate block of the padded KMACXOF256 message stream
+     * M || right_encode(0) || pad10*1 into a state.
+     * @param A the 25 lanes of the state.
+     * @param M the message.
+     * @param t the block index.
+     * @param block scratch space of SHA3.rb bytes.
+     */
+    private static void xorBlock(long[] A, byte[] M, int t, byte[] block)
+    {
+        int off = t * SHA3.rb;
+
+        if (off + SHA3.rb > M.length)
+        {
+            block(M, t, block);
+            M = block;
+            off = 0;
+        }
+
+        for (int i = 0; i < SHA3.rb / 8; i++) A[i] ^= (long) LANE.get(M, off + 8 * i);
+    }
+
+    /**
+     * Fills one rate block of the padded KMACXOF256 message stream
+     * M || right_encode(0) || pad10*1 with the cSHAKE suffix.
+     * @param M the message.
+     * @param t the block index.
+     * @param block the SHA3.rb-byte block to fill.
+     */
+    private static void block(byte[] M, int t, byte[] block)
+    {
+        int off = t * SHA3.rb;                          // Stream index of the first byte of the block
+        int n = Math.max(0, Math.min(SHA3.rb, M.length - off));
+        int end = M.length + 2;                         // Stream index of the suffix byte
+
+        Arrays.fill(block, n, SHA3.rb, (byte) 0);
+        if (n > 0) System.arraycopy(M, off, block, 0, n);
+
+        if (M.length + 1 >= off && M.length + 1 < off + SHA3.rb) block[M.length + 1 - off] = 0x01;
+        if (end >= off && end < off + SHA3.rb) block[end - off] = SHA3.CSHAKE;
+        if (end / SHA3.rb == t) block[SHA3.rb - 1] |= (byte) 0x80;
+    }
+
+    /**
+     * Byte-oriented KMACXOF256 over the remaining bytes of a buffer.
+     * The buffer's position is advanced to its limit.
+     * @param K the key bytes of any length, including zero.
+     * @param X the main input buffer.
+     * @param L the requested output length in bytes.
+     * @param S the customization bytes.
+     * @return L bytes of output.
+     */
+    static byte[] KMACXOF256(byte[] K, ByteBuffer X, int L, byte[] S)
+    {
+        KMAC mac = KMAC.local(K, S);
+        byte[] Z = mac.update(X).squeeze(L);
+
+        mac.clear();
+
+        return Z;
+    }
+
+    /**
+     * ParallelHash256. X is cut into B-byte leaves, the leaves are hashed
+     * with cSHAKE256 on the common ForkJoinPool, and the 64-byte leaf
+     * values are combined by a final cSHAKE256 under the name "ParallelHash".
+     * @param X the main input bytes of any length, including zero.
+     * @param B the leaf size in bytes.
+     * @param L the requested output length in bytes.
+     * @param S the customization bytes.
+     * @return L bytes of output.
+     */
+    static byte[] ParallelHash256(byte[] X, int B, int L, byte[] S)
+    {
+        return parallelHash(X, B, L, S, 8L * L);
+    }
+
+    /**
+     * ParallelHashXOF256. ParallelHash256 with variable length output.
+     * @param X the main input bytes of any length, including zero.
+     * @param B the leaf size in bytes.
+     * @param L the requested output length in bytes.
+     * @param S the customization bytes.
+     * @return L bytes of output.
+     */
+    static byte[] ParallelHashXOF256(byte[] X, int B, int L, byte[] S)
+    {
+        return parallelHash(X, B, L, S, 0);
+    }
+
+    /**
+     * Shared body of ParallelHash256 and ParallelHashXOF256.
+     * @param X the main input bytes.
+     * @param B the leaf size in bytes.
+     * @param L the requested output length in bytes.
+     * @param S the customization bytes.
+     * @param encodedL the output length in bits encoded at the end, 0 for the XOF.
+     * @return L bytes of output.
+     */
+    private static byte[] parallelHash(byte[] X, int B, int L, byte[] S, long encodedL)
+    {
+        if (B <= 0) throw new IllegalArgumentException("Leaf size must be positive.");
+
+        int n = (int) ((X.length + (long) B - 1) / B);        // Number of leaves
+        byte[] leaves = new byte[64 * n];
+        byte[] z = new byte[L];
+        byte[] lb = IF.left_encode_bytes(B);
+        byte[] rn = IF.right_encode_bytes(n);
+        byte[] rl = IF.right_encode_bytes(encodedL);
+
+        ForkJoinPool.commonPool().invoke(new Leaves(X, B, leaves, 0, n));
+
+        cSHAKE256(PARALLEL_HASH_NAME, S)
+                .absorb(lb, 0, lb.length)
+                .absorb(leaves, 0, leaves.length)
+                .absorb(rn, 0, rn.length)
+                .absorb(rl, 0, rl.length)
+                .squeeze(z, 0, L);
+
+        return z;
+    }
+
+    /**
+     * Hashes a range of ParallelHash leaves, splitting the range in half
+     * across the pool until it covers fewer than PARALLEL_GRAIN input bytes.
+     */
+    private static class Leaves extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] X;         // The main input
+        private final int B;            // The leaf size in bytes
+        private final byte[] out;       // The 64-byte leaf values
+        private final int lo, hi;       // The range of leaves
+
+        Leaves(byte[] X, int B, byte[] out, int lo, int hi)
+        {
+            this.X = X;
+            this.B = B;
+            this.out = out;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (hi - lo > 1 && (long) (hi - lo) * B > PARALLEL_GRAIN)
+            {
+                int mid = (lo + hi) >>> 1;
+
+                invokeAll(new Leaves(X, B, out, lo, mid), new Leaves(X, B, out, mid, hi));
+                return;
+            }
+
+            for (int i = lo; i < hi; i++)
+            {
+                int off = i * B;
+
+                new SHA3.Sponge(SHA3.SHAKE).absorb(X, off, Math.min(B, X.length - off)).squeeze(out, 64 * i, 64);
+            }
+        }
+    }
+
+    /**
+     * Zeroes and drops every keyed KMAC prefix kept by KMAC.cached, for
+     * a process done with the keys it has used.
+     */
+    static void clearCache()
+    {
+        synchronized (KEYED)
+        {
+            for (Map.Entry<Keying, KMAC> e : KEYED.entrySet())
+            {
+                e.getValue().clear();
+                e.getKey().clear();
+            }
+            KEYED.clear();
+        }
+    }
+
+    /**
+     * Incremental KMACXOF256. The key is absorbed on construction,
+     * the main input is absorbed by update in pieces of any size, and
+     * right_encode(0) is absorbed by the first call to squeeze.
+     */
+    static class KMAC
+    {
+        /**
+         * right_encode(0), absorbed after the main input.
+         */
+        private static final byte[] RIGHT_ENCODE_ZERO = IF.right_encode_bytes(0);
+        /**
+         * Each thread's reusable computation for local.
+         */
+        private static final ThreadLocal<KMAC> LOCAL =
+                ThreadLocal.withInitial(() -> new KMAC(new SHA3.Sponge(SHA3.CSHAKE), false));
+
+        /**
+         * The underlying cSHAKE256 sponge.
+         */
+        private final SHA3.Sponge sponge;
+        /**
+         * True once right_encode(0) has been absorbed.
+         */
+        private boolean finished;
+
+        /**
+         * Constructs a KMACXOF256 computation under a key.
+         *
+         * @param K the key bytes of any length, including zero.
+         * @param S the customization bytes.
+         */
+        KMAC(byte[] K, byte[] S)
+        {
+            byte[] k = IF.bytepad(IF.encode_string(K), SHA3.rb);
+
+            sponge = cSHAKE256(KMAC_NAME, S).absorb(k, 0, k.length);
+            Arrays.fill(k, (byte) 0);
+        }
+
+        /**
+         * Constructs a computation continuing from a sponge.
+         *
+         * @param sponge the sponge.
+         * @param finished true if right_encode(0) has been absorbed.
+         */
+        private KMAC(SHA3.Sponge sponge, boolean finished)
+        {
+            this.sponge = sponge;
+            this.finished = finished;
+        }
+
+        /**
+         * Returns a fresh KMACXOF256 computation under a key. The sponge
+         * state after the prefix and key blocks is kept in a bounded LRU
+         * cache by key and customization, so repeated calls with the same
+         * K and S copy that 200-byte state instead of absorbing it again.
+         * K may be secret, such as a passphrase that tags are repeatedly
+         * computed under: the cached state and key are zeroed when evicted
+         * or by clearCache, and callers should clear the returned copy
+         * once done with it.
+         *
+         * @param K the key bytes of any length, including zero.
+         * @param S the customization bytes.
+         * @return a computation ready for the main input.
+         */
+        static KMAC cached(byte[] K, byte[] S)
+        {
+            synchronized (KEYED)
+            {
+                return prefix(K, S).copy();         // Under the lock, as eviction zeroes the prefix
+            }
+        }
+
+        /**
+         * Returns this thread's reusable KMACXOF256 computation, keyed
+         * afresh with K. Nothing is cached, for keys used only once;
+         * callers that are done with a secret key should clear the
+         * computation.
+         * It is for callers that cannot hold a computation of their own,
+         * and stays valid only until the next call to local on the same
+         * thread.
+         *
+         * @param K the key bytes of any length, including zero.
+         * @param S the customization bytes.
+         * @return a computation ready for the main input.
+         */
+        static KMAC local(byte[] K, byte[] S)
+        {
+            KMAC mac = LOCAL.get();
+            byte[] z = cSHAKEPrefix(KMAC_NAME, S);
+            byte[] k = IF.bytepad(IF.encode_string(K), SHA3.rb);
+
+            mac.sponge.reset().absorb(z, 0, z.length).absorb(k, 0, k.length);
+            mac.finished = false;
+            Arrays.fill(k, (byte) 0);
+
+            return mac;
+        }
+
+        /**
+         * Reports whether a key and customization have a prefix in the
+         * cache of cached.
+         *
+         * @param K the key bytes.
+         * @param S the customization bytes.
+         * @return true IFF the prefix is cached.
+         */
+        static boolean isCached(byte[] K, byte[] S)
+        {
+            synchronized (KEYED)
+            {
+                return KEYED.containsKey(new Keying(K, S, false));
+            }
+        }
+
+        /**
+         * The cached computation that has absorbed the prefix and key
+         * blocks, built and cached if there is none. It is shared and
+         * must not be updated or squeezed, and is valid only while the
+         * caller holds the KEYED lock.
+         *
+         * @param K the key bytes of any length, including zero.
+         * @param S the customization bytes.
+         * @return the keyed prefix.
+         */
+        static KMAC prefix(byte[] K, byte[] S)
+        {
+            synchronized (KEYED)
+            {
+                KMAC keyed = KEYED.get(new Keying(K, S, false));
+
+                if (keyed == null)
+                {
+                    Keying id = new Keying(K, S, true);
+
+                    keyed = new KMAC(id.K, id.S);
+                    KEYED.put(id, keyed);
+                }
+
+                return keyed;
+            }
+        }
+
+        /**
+         * Copies this computation. The copy and this computation
+         * then continue independently.
+         *
+         * @return the copy.
+         */
+        KMAC copy()
+        {
+            return new KMAC(sponge.copy(), finished);
+        }
+
+        /**
+         * Zeroes the state of this computation, for one that has absorbed
+         * a secret key. It must not be used afterwards.
+         */
+        void clear()
+        {
+            sponge.reset();
+            finished = false;
+        }
+
+        /**
+         * Absorbs part of the main input.
+         *
+         * @param X the input bytes.
+         * @param off offset of the first byte of X.
+         * @param len number of bytes to absorb.
+         * @return this computation.
+         * @throws IllegalStateException if output has already been squeezed.
+         */
+        KMAC update(byte[] X, int off, int len)
+        {
+            sponge.absorb(X, off, len);
+
+            return this;
+        }
+
+        /**
+         * Absorbs the remaining bytes of a buffer as part of the main input.
+         * The buffer's position is advanced to its limit.
+         *
+         * @param X the input buffer.
+         * @return this computation.
+         * @throws IllegalStateException if output has already been squeezed.
+         */
+        KMAC update(ByteBuffer X)
+        {
+            sponge.absorb(X);
+
+            return this;
+        }
+
+        /**
+         * Squeezes output bytes. Consecutive calls continue the output.
+         *
+         * @param Z the output buffer.
+         * @param off offset of the first byte written to Z.
+         * @param len number of bytes to squeeze.
+         */
+        void squeeze(byte[] Z, int off, int len)
+        {
+            if (!finished)
+            {
+                sponge.absorb(RIGHT_ENCODE_ZERO, 0, RIGHT_ENCODE_ZERO.length);
+                finished = true;
+            }
+
+            sponge.squeeze(Z, off, len);
+        }
+
+        /**
+         * Squeezes the next L output bytes.
+         *
+         * @param L the number of bytes.
+         * @return L bytes of output.
+         */
+        byte[] squeeze(int L)
+        {
+            byte[] Z = new byte[L];
+
+            squeeze(Z, 0, L);
+
+            return Z;
+        }
+    }
+
+    /**
+     * Key and customization of a cached KMAC prefix, compared by content.
+     */
+    private static final class Keying
+    {
+        private final byte[] K;         // The key, copied when stored
+        private final byte[] S;         // The customization, copied when stored
+        private final int hash;
+
+        Keying(byte[] K, byte[] S, boolean copy)
+        {
+            this.K = copy ? K.clone() : K;
+            this.S = copy ? S.clone() : S;
+            this.hash = 31 * Arrays.hashCode(K) + Arrays.hashCode(S);
+        }
+
+        /**
+         * Zeroes the stored key once the entry has left the cache.
+         */
+        void clear()
+        {
+            Arrays.fill(K, (byte) 0);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof Keying)) return false;
+
+            Keying k = (Keying) o;
+
+            return MessageDigest.isEqual(K, k.K) && Arrays.equals(S, k.S);
+        }
 
-        return cSHAKE256(newX, L, "KMAC", S);
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
     }
 }
@@ -0,0 +1,262 @@
+/**
+ * FileName: Daemon.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Serves the commands of Main over a Unix-domain socket, so that one
+ * warm JVM answers many requests instead of each paying for startup,
+ * class loading, the generator table and JIT compilation.
+ *
+ * Only the daemon's own user may use it. The socket file is made
+ * readable and writable by its owner alone, and a connection whose peer
+ * credentials name another user is closed unanswered. Every file a
+ * command reads or writes must lie under the root directory the daemon
+ * was started with, after "..", absolute names and symbolic links are
+ * resolved.
+ *
+ * The protocol is line-based UTF-8 text. A request is one line of
+ * tab-separated fields: the client's working directory, which relative
+ * file names are resolved against, then the command and its arguments
+ * exactly as given to Main. The response is a header line "OK n" or
+ * "ERR n", followed by the n lines the command printed, or the error.
+ * A client may send any number of requests without waiting. The
+ * requests already received are all handed to the Service before any
+ * response is written, so they run concurrently, and their responses
+ * come back in request order. A request that needs the files another
+ * writes must therefore wait for that one's response. Client is a thin
+ * client for this protocol, and socat works as well.
+ *
+ * Each connection has its own handler thread reading requests, and the
+ * commands themselves run on a Service, which bounds how many run at
+ * once across all connections. Commands that prompt with "-u" cannot
+ * run here, as the daemon has no terminal.
+ */
+final class Daemon
+{
+    /**
+     * The largest number of commands queued or running at once, and of
+     * requests one connection has in flight.
+     */
+    static final int MAX_PENDING = 64;
+
+    /**
+     * Listens on a Unix-domain socket and serves connections until the
+     * process is killed.
+     *
+     * @param socket the path of the socket file.
+     * @param root the directory the commands' files must lie in.
+     * @throws IOException if the socket cannot be opened or the root
+     *          does not exist.
+     */
+    static void serve(String socket, String root) throws IOException
+    {
+        Path r = Paths.get(root).toRealPath();
+
+        try (Service service = Service.fixed(Runtime.getRuntime().availableProcessors(), MAX_PENDING);
+             ServerSocketChannel server = open(Client.address(socket)))
+        {
+            service.warmUp().join();
+            System.out.println("Listening on " + socket + " for files under " + r + ".");
+
+            while (true)
+            {
+                SocketChannel ch = server.accept();
+                Thread handler = new Thread(() -> handle(ch, service, r), "daemon-connection");
+
+                handler.setDaemon(true);
+                handler.start();
+            }
+        }
+    }
+
+    /**
+     * Opens a server socket file readable and writable by its owner
+     * only. A stale socket file left by an earlier daemon is replaced,
+     * and the new one removed on exit.
+     *
+     * @param a the address.
+     * @return the bound server socket.
+     * @throws IOException if the socket cannot be bound or its
+     *          permissions set.
+     */
+    static ServerSocketChannel open(UnixDomainSocketAddress a) throws IOException
+    {
+        Path f = a.getPath();
+
+        Files.deleteIfExists(f);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(a);
+        f.toFile().deleteOnExit();
+
+        try
+        {
+            Files.setPosixFilePermissions(f, PosixFilePermissions.fromString("rw-------"));
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            server.close();
+            throw e;
+        }
+
+        return server;
+    }
+
+    /**
+     * Tells whether the peer of a connection runs as the user owning
+     * the socket file, which is the user this process ran as when it
+     * bound the socket. Checking the peer closes the window between
+     * binding the socket and restricting its file's permissions.
+     *
+     * @param ch the connection.
+     * @return true IFF the peer's user owns the socket file.
+     * @throws IOException if the peer credentials or the socket file's
+     *          owner cannot be read.
+     */
+    static boolean sameUser(SocketChannel ch) throws IOException
+    {
+        UnixDomainPrincipal peer = ch.getOption(ExtendedSocketOptions.SO_PEERCRED);
+        Path socket = ((UnixDomainSocketAddress) ch.getLocalAddress()).getPath();
+
+        return peer.user().equals(Files.getOwner(socket));
+    }
+
+    /**
+     * Answers the requests of one connection in order until the client
+     * stops sending. The requests already buffered, up to MAX_PENDING,
+     * are all dispatched before their responses are awaited and written,
+     * and the responses are flushed once per such batch.
+     *
+     * @param ch the connection, closed on return.
+     * @param service the service the commands run on.
+     * @param root the real path of the directory the commands' files
+     *          must lie in.
+     */
+    static void handle(SocketChannel ch, Service service, Path root)
+    {
+        try (ch;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(ch), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8)))
+        {
+            if (!sameUser(ch))  return;
+
+            List<CompletableFuture<String>> batch = new ArrayList<>();
+
+            for (String line; (line = in.readLine()) != null; )
+            {
+                batch.add(dispatch(line, service, root));
+                if (in.ready() && batch.size() < MAX_PENDING)  continue;
+
+                for (CompletableFuture<String> r : batch)   out.write(r.join());
+                out.flush();
+                batch.clear();
+            }
+        }
+        catch (IOException | UncheckedIOException e)
+        {
+            // The client went away; nothing is left to answer.
+        }
+    }
+
+    /**
+     * Starts one request on a service.
+     *
+     * @param request the request line.
+     * @param service the service the command runs on.
+     * @param root the real path of the directory the command's files
+     *          must lie in.
+     * @return the response, once the command has run: its header line
+     *          and the command's output or error. It never completes
+     *          exceptionally.
+     */
+    static CompletableFuture<String> dispatch(String request, Service service, Path root)
+    {
+        String[] fields = request.split("\t", -1);
+
+        if (fields.length < 2 || fields[1].isEmpty())
+            return CompletableFuture.completedFuture(response(false, "Empty request."));
+
+        Path dir = Paths.get(fields[0]).normalize();
+        String[] args = Arrays.copyOfRange(fields, 1, fields.length);
+
+        if (!dir.isAbsolute())
+            return CompletableFuture.completedFuture(response(false, "The directory must be absolute."));
+        if (!dir.startsWith(root))
+            return CompletableFuture.completedFuture(response(false, "The directory must lie under " + root + "."));
+        if (Arrays.asList(args).contains("-u"))
+            return CompletableFuture.completedFuture(response(false, "-u cannot be used with the daemon."));
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream printed = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+
+        return service.submit(() ->
+        {
+            Main.command(args, dir, root, printed);
+            return null;
+        }).handle((v, e) -> e == null ? response(true, buffer.toString(StandardCharsets.UTF_8))
+                : response(false, error(e)));
+    }
+
+    /**
+     * Describes why a command failed, for its client.
+     *
+     * @param e what the command threw, possibly wrapped by its future.
+     * @return the message of the underlying exception, or its name if it
+     *          has none.
+     */
+    static String error(Throwable e)
+    {
+        if (e instanceof CompletionException && e.getCause() != null)  e = e.getCause();
+
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    /**
+     * Formats a response.
+     *
+     * @param ok true IFF the command completed.
+     * @param text the command's output or the error, in lines.
+     * @return the header line followed by the lines of text.
+     */
+    static String response(boolean ok, String text)
+    {
+        String[] lines = text.isEmpty() ? new String[0] : text.split("\r?\n", -1);
+        int n = lines.length;
+
+        if (n > 0 && lines[n - 1].isEmpty())    n--;        // The newline ending the last line
+
+        StringBuilder sb = new StringBuilder(ok ? "OK " : "ERR ").append(n).append('\n');
+
+        for (int i = 0; i < n; i++) sb.append(lines[i]).append('\n');
+
+        return sb.toString();
+    }
+}
@@ -6,7 +6,12 @@
  * @version 1.0.060123
  */
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 
 /**
  * Implementation of an Ed448-Goldilocks curve (Edwards curve).
@@ -44,6 +49,19 @@ public class EC
      * Point at "infinity" aka neutral element of addition.
      */
     static final Point O = new Point();
+    /**
+     * Width in bits of the windows of the fixed-base table for G.
+     */
+    static final int COMB_BITS = 4;
+    /**
+     * System property naming a file in which the fixed-base table
+     * for G is kept between runs.
+     */
+    static final String TABLE_PROPERTY = "ec.gtable";
+    /**
+     * Byte length of an encoded point: x, then the lsb of y.
+     */
+    static final int ENCODED_LENGTH = GF.BYTES + 1;
 
     static class Point
     {
@@ -88,68 +106,76 @@ public class EC
          */
         Point(BigInteger x, boolean ylsb)
         {
-            BigInteger num;             // Radicand numerator
-            BigInteger den;             // Radicand denominator
-            BigInteger v;               // Radicand
+            GF xx = new GF().sqr(new GF(x));                                // x^2
+            GF num = new GF().sub(GF.ONE, xx);                              // Radicand numerator 1 - x^2
+            GF den = new GF().add(GF.ONE, xx.mul(xx, Projective.MINUS_D));  // Radicand denominator 1 - d x^2
+            GF root = new GF();
 
-            num = BigInteger.ONE.subtract(x.modPow(TWO, p)).mod(p);
-            den = BigInteger.ONE.add(d.negate().multiply(x.modPow(TWO, p))).mod(p);
+            if (root.sqrtRatio(num, den))
+            {
+                if (root.lsb() != ylsb) root.neg(root);                     // lsb correction
+                y = root.toBigInteger();
+            }
+            else y = null;
+            this.x = x;
+        }
 
-            v = num.multiply(den.modInverse(p)).mod(p);
+        /**
+         * Decodes a point from ENCODED_LENGTH bytes: x as a 56-byte
+         * little-endian integer below p, then a byte holding the least
+         * significant bit of y in its top bit. Costs one exponentiation.
+         *
+         * @param B the encoding.
+         * @param off the offset of the encoding in B.
+         * @return the point.
+         * @throws IllegalArgumentException if the bytes do not encode a
+         *          point on the curve.
+         */
+        static Point decode(byte[] B, int off)
+        {
+            byte[] e = new byte[GF.BYTES];
+            BigInteger x;
+            Point P;
 
-            y = IF.sqrt(v, p, ylsb).mod(p);
-            this.x = x;
+            if (B.length - off < ENCODED_LENGTH || (B[off + GF.BYTES] & 0x7F) != 0)
+                throw new IllegalArgumentException("Malformed point encoding.");
+
+            for (int i = 0; i < GF.BYTES; i++) e[i] = B[off + GF.BYTES - 1 - i];
+            x = new BigInteger(1, e);
+
+            if (x.compareTo(p) >= 0 || (P = new Point(x, (B[off + GF.BYTES] & 0x80) != 0)).y == null)
+                throw new IllegalArgumentException("Encoded x is not on the curve.");
+
+            return P;
+        }
+
+        /**
+         * Encodes this point in ENCODED_LENGTH bytes, the inverse of
+         * decode.
+         *
+         * @return the encoding.
+         */
+        byte[] encode()
+        {
+            byte[] B = new byte[ENCODED_LENGTH];
+
+            new GF(x).encode(B, 0);
+            if (y.mod(p).testBit(0))    B[GF.BYTES] = (byte) 0x80;
+
+            return B;
         }
 
         /**
          * Edwards point addition formula.
-         * Adds the point P to this point.
+         * Adds the point P to this point. The sum is computed in
+         * projective coordinates and converted back with one inversion.
          *
          * @param P the point to be added to this point.
          * @return the resulting point from the addition.
          */
         Point add(Point P)
         {
-            BigInteger newx, newy;          // Coordinates for the resulting point
-            BigInteger numx, numy;          // Resulting point numerators
-            BigInteger denx, deny;          // Resulting point denominators
-            BigInteger dxxyy;               // All coordinates multiplied with d
-            BigInteger xy;                  // x1 multiplied with y2
-            BigInteger yx;                  // y1 multiplied with x2
-            BigInteger xx;                  // X coordinates multiplied together
-            BigInteger yy;                  // Y coordinates multiplied together
-
-            xy = this.x.multiply(P.y);
-            yx = this.y.multiply(P.x);
-            xx = this.x.multiply(P.x);
-            yy = this.y.multiply(P.y);
-            dxxyy = d.multiply(xx.multiply(yy));
-
-            numx= xy.add(yx);
-            denx = BigInteger.ONE.add(dxxyy);
-            numy = yy.subtract(xx);
-            deny = BigInteger.ONE.subtract(dxxyy);
-
-            newx = numx.multiply(denx.modInverse(p)).mod(p);
-            newy = numy.multiply(deny.modInverse(p)).mod(p);
-
-            return new Point(newx, newy);
-
-//            BigInteger x1 = x;
-//            BigInteger y1 = y;
-//            BigInteger x2 = P.x;
-//            BigInteger y2 = P.y;
-//
-//            BigInteger A = (y1.subtract(x1)).multiply(y2.subtract(x2)).mod(p);
-//            BigInteger B = (y1.add(x1)).multiply(y2.add(x2)).mod(p);
-//            BigInteger C = d.multiply(x1).multiply(x2).multiply(BigInteger.valueOf(2)).mod(p);
-//            BigInteger D = B.subtract(A).mod(p);
-//            BigInteger E = B.add(A).mod(p);
-//
-//            BigInteger x3 = D.multiply(E).mod(p);
-//            BigInteger y3 = D.multiply(E).multiply(C).mod(p);
-//
-//            return new Point(x3, y3);
+            return new Projective(this).add(new Projective(P)).toAffine();
         }
 
         /**
@@ -173,26 +199,171 @@ public class EC
          * Multiplies this point by a scalar using an
          * exponentiation algorithm.
          * s * P = P + P + ... + P (s times)
+         * The bits of s are scanned from the top in projective
+         * coordinates; the product is converted to affine coordinates
+         * once at the end.
          *
          * @param s the scalar.
          * @return the product point
          */
         Point mult(BigInteger s)
         {
-            Point V = O;                    // Initialize with the neutral element
-            Point T = this;
+            return mult(s, false);
+        }
+
+        /**
+         * Multiplies this point by a scalar, optionally on a regular
+         * schedule. With constantTime set, the scalar is reduced mod n
+         * (mod r for G) and then cut into 112 windows of COMB_BITS bits.
+         * Each window costs the same doublings, one table lookup and one
+         * addition, whatever its digit. Each lookup reads every table
+         * entry and keeps the wanted one with masks. So neither the
+         * operations done nor the memory read depend on the scalar's
+         * bits. The BigInteger reduction and the window extraction are
+         * not constant time. Without constantTime this is mult(s).
+         * Like mult, a scalar that is not positive gives O.
+         *
+         * @param s the scalar.
+         * @param constantTime whether to use the regular schedule.
+         * @return the product point
+         */
+        Point mult(BigInteger s, boolean constantTime)
+        {
+            return (s.signum() <= 0) ? O : multProjective(s, constantTime).toAffine();
+        }
+
+        /**
+         * Multiplies this point by a scalar, as mult(s, constantTime)
+         * does, but leaves the product in projective coordinates so that
+         * several products can share one inversion in EC.toAffine.
+         *
+         * @param s the scalar.
+         * @param constantTime whether to use the regular schedule.
+         * @return the product point
+         */
+        Projective multProjective(BigInteger s, boolean constantTime)
+        {
+            if (s.signum() <= 0)    return Projective.neutral();
+            if (this == G)          return constantTime ? FixedBase.multConstantTime(s) : FixedBase.mult(s);
+            if (!constantTime)
+            {
+                Projective V = Projective.neutral();    // Initialize with the neutral element
+                Projective T = new Projective(this);
+
+                for (int i = s.bitLength() - 1; i >= 0; i--)
+                {
+                    V.dbl();
+
+                    if (s.testBit(i))   V.add(T);
+                }
+
+                return V;
+            }
+
+            Projective[] W = new Projective[FixedBase.ENTRIES + 1];    // j * this for j = 0..15
+            Projective V = Projective.neutral();
+            Projective T = Projective.neutral();
 
-            while (s.compareTo(BigInteger.ZERO) > 0)
+            W[0] = Projective.neutral();
+            W[1] = new Projective(this);
+            for (int j = 2; j < W.length; j++) W[j] = new Projective(W[j - 1]).add(W[1]);
+
+            s = s.mod(n);
+            for (int i = (n.bitLength() + COMB_BITS - 1) / COMB_BITS - 1; i >= 0; i--)
             {
-                if (s.testBit(0))   V = T.add(V);
+                for (int c = 0; c < COMB_BITS; c++) V.dbl();
 
-                T = T.add(T);
-                s = s.shiftRight(1);
+                V.add(T.select(W, window(s, i)));
             }
 
             return V;
         }
 
+        /**
+         * Tests whether this point satisfies the curve equation
+         * x^2 + y^2 = 1 + d x^2 y^2 (mod p).
+         *
+         * @return true IFF this point is on the curve.
+         */
+        boolean isOnCurve()
+        {
+            GF xx = new GF().sqr(new GF(x));
+            GF yy = new GF().sqr(new GF(y));
+            GF rhs = new GF().mul(xx, yy);
+
+            rhs.mul(rhs, new GF(d));
+
+            return new GF().add(xx, yy).equals(rhs.add(rhs, new GF(1)));
+        }
+
+        /**
+         * Computes b * this + a * G in one pass: Straus' method with a
+         * joint window of COMB_BITS bits, so both scalars share the same
+         * doublings. The multiples 1..15 of this point are computed up
+         * front; those of G are the first row of the fixed-base table.
+         * Like mult, a scalar that is not positive contributes O.
+         *
+         * @param b the scalar for this point.
+         * @param a the scalar for G.
+         * @return the point b * this + a * G
+         */
+        Point multAdd(BigInteger b, BigInteger a)
+        {
+            return multAdd(b, a, multiples());
+        }
+
+        /**
+         * Computes b * this + a * G as multAdd(b, a), with the multiples
+         * of this point given, so a caller multiplying the same point
+         * again can keep them.
+         *
+         * @param b the scalar for this point.
+         * @param a the scalar for G.
+         * @param W the multiples of this point, from multiples(). They
+         *          are only read.
+         * @return the point b * this + a * G
+         */
+        Point multAdd(BigInteger b, BigInteger a, Projective[] W)
+        {
+            Projective[] M = FixedBase.TABLE[0];                    // j * G for j = 1..15
+            Projective V = Projective.neutral();
+            int n;
+
+            a = (a.signum() > 0) ? a.mod(r) : BigInteger.ZERO;
+            b = (b.signum() > 0) ? b : BigInteger.ZERO;
+            n = (Math.max(a.bitLength(), b.bitLength()) + COMB_BITS - 1) / COMB_BITS;
+
+            for (int i = n - 1; i >= 0; i--)
+            {
+                if (i < n - 1)
+                    for (int c = 0; c < COMB_BITS; c++) V.dbl();
+
+                int j = window(b, i);
+                int k = window(a, i);
+
+                if (j != 0) V.add(W[j - 1]);
+                if (k != 0) V.add(M[k - 1]);
+            }
+
+            return V.toAffine();
+        }
+
+        /**
+         * The multiples 1..15 of this point that multAdd adds in, one
+         * per value of a window of COMB_BITS bits.
+         *
+         * @return j * this at index j - 1.
+         */
+        Projective[] multiples()
+        {
+            Projective[] W = new Projective[FixedBase.ENTRIES];
+
+            W[0] = new Projective(this);
+            for (int j = 1; j < W.length; j++) W[j] = new Projective(W[j - 1]).add(W[0]);
+
+            return W;
+        }
+
         /**
          * The opposite of point (x,y).
          *
@@ -208,4 +379,590 @@ public class EC
             return "(" + this.x + ", " + this.y + ")";
         }
     }
+
+    /**
+     * The i-th window of COMB_BITS bits of a non-negative scalar,
+     * counted from the least significant end.
+     *
+     * @param s the scalar.
+     * @param i the window index.
+     * @return the bits COMB_BITS * i .. COMB_BITS * i + COMB_BITS - 1 of s.
+     */
+    static int window(BigInteger s, int i)
+    {
+        return bits(s, COMB_BITS * i, COMB_BITS);
+    }
+
+    /**
+     * Extracts len bits of a non-negative scalar.
+     *
+     * @param s the scalar.
+     * @param off the index of the lowest bit.
+     * @param len the number of bits, at most 31.
+     * @return the bits off .. off + len - 1 of s.
+     */
+    static int bits(BigInteger s, int off, int len)
+    {
+        int w = 0;
+
+        for (int k = len - 1; k >= 0; k--)  w = (w << 1) | (s.testBit(off + k) ? 1 : 0);
+
+        return w;
+    }
+
+    /**
+     * Computes k[0] * P[0] + ... + k[n - 1] * P[n - 1] with Pippenger's
+     * bucket method. The scalars are cut into windows of c bits, with c
+     * growing with log n. For each window, every point is added into
+     * the bucket of its digit. The buckets are then summed with running
+     * sums, so bucket j counts j times. The windows are combined from
+     * the top with c doublings each. Cost is about (n + 2^(c + 1)) / c
+     * additions per scalar bit, against about 1.25 per bit for each
+     * point on its own.
+     * Like mult, a scalar that is not positive contributes O.
+     *
+     * @param k the scalars.
+     * @param P the points, as many as scalars.
+     * @return the point k[0] * P[0] + ... + k[n - 1] * P[n - 1]
+     */
+    static Point multSum(BigInteger[] k, Point[] P)
+    {
+        int n = P.length;
+        int c = Math.max(2, Math.min(16, 29 - Integer.numberOfLeadingZeros(n)));    // log2(n) - 2
+        int b = 0;
+        Projective V = Projective.neutral();
+        Projective[] Q = new Projective[n];
+
+        for (int i = 0; i < n; i++)
+        {
+            if (k[i].signum() > 0)  b = Math.max(b, k[i].bitLength());
+            Q[i] = new Projective(P[i]);
+        }
+
+        for (int w = (b + c - 1) / c - 1; w >= 0; w--)
+        {
+            Projective[] B = new Projective[(1 << c) - 1];      // Bucket j - 1 collects digit j
+            Projective S = Projective.neutral();                // Running sum of buckets j..top
+            Projective T = Projective.neutral();                // Sum of j * bucket j
+
+            for (int j = 0; j < c; j++) V.dbl();
+
+            for (int i = 0; i < n; i++)
+            {
+                int j = (k[i].signum() > 0) ? bits(k[i], c * w, c) : 0;
+
+                if (j == 0)             continue;
+                if (B[j - 1] == null)   B[j - 1] = new Projective(Q[i]);
+                else                    B[j - 1].add(Q[i]);
+            }
+
+            for (int j = B.length - 1; j >= 0; j--)
+            {
+                if (B[j] != null)   S.add(B[j]);
+                T.add(S);
+            }
+
+            V.add(T);
+        }
+
+        return V.toAffine();
+    }
+
+    /**
+     * Converts points to affine coordinates with a single inversion,
+     * shared by all of them through GF.invertAll.
+     *
+     * @param P the points.
+     * @return the affine points, in the same order.
+     */
+    static Point[] toAffine(Projective... P)
+    {
+        GF[] zinv = new GF[P.length];
+        Point[] A = new Point[P.length];
+
+        for (int i = 0; i < P.length; i++) zinv[i] = new GF(P[i].Z);
+        GF.invertAll(zinv);
+
+        for (int i = 0; i < P.length; i++)
+            A[i] = new Point(new GF().mul(P[i].X, zinv[i]).toBigInteger(), new GF().mul(P[i].Y, zinv[i]).toBigInteger());
+
+        return A;
+    }
+
+    /**
+     * A point in projective coordinates (X:Y:Z), standing for the
+     * affine point (X/Z, Y/Z), with coordinates in GF. Addition and
+     * doubling use the complete formulas of RFC 8032 for Ed448, so no
+     * inversion is needed until the result is converted back with
+     * toAffine(). add and dbl overwrite this point, working in scratch
+     * elements kept with it, so a multiplication loop allocates
+     * nothing; points that are only read never get scratch.
+     */
+    static final class Projective
+    {
+        /**
+         * -d, the small constant by which add multiplies.
+         */
+        private static final int MINUS_D = d.negate().intValueExact();
+
+        final GF X;
+        final GF Y;
+        final GF Z;
+        /**
+         * Scratch elements of add and dbl, allocated on first use.
+         */
+        private GF[] t;
+
+        /**
+         * Constructs a point from projective coordinates.
+         *
+         * @param X GF X coordinate
+         * @param Y GF Y coordinate
+         * @param Z GF Z coordinate
+         */
+        Projective(GF X, GF Y, GF Z)
+        {
+            this.X = X;
+            this.Y = Y;
+            this.Z = Z;
+        }
+
+        /**
+         * Constructs the projective point (x:y:1) of an affine point.
+         *
+         * @param P the affine point.
+         */
+        Projective(Point P)
+        {
+            this(new GF(P.x), new GF(P.y), new GF(1));
+        }
+
+        /**
+         * Constructs a copy of a point.
+         *
+         * @param P the point to copy.
+         */
+        Projective(Projective P)
+        {
+            this(new GF(P.X), new GF(P.Y), new GF(P.Z));
+        }
+
+        /**
+         * Constructs a new neutral element (0:1:1).
+         *
+         * @return the neutral element.
+         */
+        static Projective neutral()
+        {
+            return new Projective(new GF(), new GF(1), new GF(1));
+        }
+
+        /**
+         * Adds the point P to this point, in place. P may be this point.
+         *
+         * @param P the point to be added to this point.
+         * @return this point.
+         */
+        Projective add(Projective P)
+        {
+            GF[] t = scratch();
+
+            t[0].mul(Z, P.Z);                       // A = Z1 Z2
+            t[1].sqr(t[0]);                         // B = A^2
+            t[2].mul(X, P.X);                       // C = X1 X2
+            t[3].mul(Y, P.Y);                       // D = Y1 Y2
+            t[4].add(X, Y);
+            t[5].add(P.X, P.Y);
+            t[4].mul(t[4], t[5]);                   // H = (X1 + Y1)(X2 + Y2)
+            t[4].sub(t[4], t[2]).sub(t[4], t[3]);   // H - C - D
+            t[5].mul(t[2], t[3]).mul(t[5], MINUS_D); // -E = -d C D
+            t[3].sub(t[3], t[2]);                   // D - C
+            t[2].add(t[1], t[5]);                   // F = B - E
+            t[1].sub(t[1], t[5]);                   // G = B + E
+
+            X.mul(t[0], t[2]).mul(X, t[4]);         // A F (H - C - D)
+            Y.mul(t[0], t[1]).mul(Y, t[3]);         // A G (D - C)
+            Z.mul(t[2], t[1]);                      // F G
+
+            return this;
+        }
+
+        /**
+         * Doubles this point, in place.
+         *
+         * @return this point.
+         */
+        Projective dbl()
+        {
+            GF[] t = scratch();
+
+            t[0].add(X, Y).sqr(t[0]);               // B = (X + Y)^2
+            t[1].sqr(X);                            // C = X^2
+            t[2].sqr(Y);                            // D = Y^2
+            t[3].add(t[1], t[2]);                   // E = C + D
+            t[4].sqr(Z);                            // H = Z^2
+            t[4].add(t[4], t[4]).sub(t[3], t[4]);   // J = E - 2H
+            t[0].sub(t[0], t[3]);                   // B - E
+            t[1].sub(t[1], t[2]);                   // C - D
+
+            X.mul(t[0], t[4]);                      // (B - E) J
+            Y.mul(t[3], t[1]);                      // E (C - D)
+            Z.mul(t[3], t[4]);                      // E J
+
+            return this;
+        }
+
+        /**
+         * Overwrites this point with W[k], reading every entry of W so
+         * that the memory accessed does not depend on k.
+         *
+         * @param W the candidates.
+         * @param k the index of the wanted entry.
+         * @return this point.
+         */
+        Projective select(Projective[] W, int k)
+        {
+            for (int j = 0; j < W.length; j++)  cmov(W[j], ((long) (k ^ j) - 1) >> 63);
+
+            return this;
+        }
+
+        /**
+         * Overwrites this point with P where mask is all ones, without
+         * branching on it.
+         *
+         * @param P the point to copy.
+         * @param mask 0 to keep this point, -1 to take P.
+         * @return this point.
+         */
+        Projective cmov(Projective P, long mask)
+        {
+            X.cmov(P.X, mask);
+            Y.cmov(P.Y, mask);
+            Z.cmov(P.Z, mask);
+
+            return this;
+        }
+
+        /**
+         * Converts this point to affine coordinates with one inversion.
+         *
+         * @return the affine point (X/Z, Y/Z).
+         */
+        Point toAffine()
+        {
+            GF zinv = new GF().inv(Z);
+
+            return new Point(new GF().mul(X, zinv).toBigInteger(), new GF().mul(Y, zinv).toBigInteger());
+        }
+
+        /**
+         * The scratch elements, allocated on first use.
+         *
+         * @return six scratch elements.
+         */
+        private GF[] scratch()
+        {
+            if (t == null)
+            {
+                t = new GF[6];
+                for (int i = 0; i < t.length; i++) t[i] = new GF();
+            }
+
+            return t;
+        }
+    }
+
+    /**
+     * Precomputed multiples j * 2^(COMB_BITS * i) * G of the generator,
+     * so that k * G is a sum of one table entry per window of k mod r
+     * and needs no doublings. The table is built on first use, once per
+     * JVM, by the initialization of this holder class, and is never
+     * modified afterwards. When the system property ec.gtable names a
+     * file, the table is loaded from that file, or written to it after
+     * being built.
+     */
+    static final class FixedBase
+    {
+        /**
+         * File header: "G448" followed by the window width.
+         */
+        private static final int MAGIC = 0x47343438;
+        /**
+         * Number of windows covering a scalar reduced mod r.
+         */
+        static final int WINDOWS = (r.bitLength() + COMB_BITS - 1) / COMB_BITS;
+        /**
+         * Entries per window; the zero multiple is not stored.
+         */
+        static final int ENTRIES = (1 << COMB_BITS) - 1;
+        /**
+         * Byte length of one stored coordinate.
+         */
+        private static final int COORD = 56;
+        /**
+         * Byte length of the digest guarding a stored table.
+         */
+        private static final int DIGEST = 32;
+
+        private static final Projective[][] TABLE = init();
+
+        /**
+         * Multiplies G by a scalar with one table lookup and one
+         * addition per window.
+         *
+         * @param s the scalar.
+         * @return the product point s * G
+         */
+        static Projective mult(BigInteger s)
+        {
+            Projective V = Projective.neutral();
+
+            s = s.mod(r);
+            for (int i = 0; i < WINDOWS; i++)
+            {
+                int k = window(s, i);
+
+                if (k != 0) V.add(TABLE[i][k - 1]);
+            }
+
+            return V;
+        }
+
+        /**
+         * Multiplies G by a scalar on a regular schedule: every window
+         * adds an entry, the neutral element for a zero digit, and every
+         * lookup scans the whole row of the table.
+         *
+         * @param s the scalar.
+         * @return the product point s * G
+         */
+        static Projective multConstantTime(BigInteger s)
+        {
+            Projective V = Projective.neutral();
+            Projective T = Projective.neutral();
+
+            s = s.mod(r);
+            for (int i = 0; i < WINDOWS; i++)
+            {
+                int k = window(s, i);
+
+                T.X.set(GF.ZERO);
+                T.Y.set(GF.ONE);
+                T.Z.set(GF.ONE);
+                for (int j = 1; j <= ENTRIES; j++)  T.cmov(TABLE[i][j - 1], ((long) (k ^ j) - 1) >> 63);
+
+                V.add(T);
+            }
+
+            return V;
+        }
+
+        /**
+         * Computes the table, with every entry normalized to Z = 1 by
+         * one shared inversion.
+         *
+         * @return the table, indexed by window and multiple - 1.
+         */
+        static Projective[][] build()
+        {
+            Projective[][] T = new Projective[WINDOWS][ENTRIES];
+            Projective B = new Projective(G);          // 2^(COMB_BITS * i) * G
+
+            for (int i = 0; i < WINDOWS; i++)
+            {
+                T[i][0] = B;
+                for (int j = 1; j < ENTRIES; j++)   T[i][j] = new Projective(T[i][j - 1]).add(B);
+                B = new Projective(T[i][ENTRIES - 1]).add(B);
+            }
+
+            Projective[] all = Arrays.stream(T).flatMap(Arrays::stream).toArray(Projective[]::new);
+            Point[] A = toAffine(all);
+
+            for (int i = 0; i < A.length; i++)  T[i / ENTRIES][i % ENTRIES] = new Projective(A[i]);
+
+            return T;
+        }
+
+        /**
+         * Writes a table to a file: header, affine coordinates as
+         * big-endian 56-byte integers, then a SHAKE256 digest of
+         * everything before it. The file is replaced atomically.
+         *
+         * @param T the table.
+         * @param f the file.
+         * @throws IOException if the file cannot be written.
+         */
+        static void store(Projective[][] T, Path f) throws IOException
+        {
+            byte[] B = new byte[8 + WINDOWS * ENTRIES * 2 * COORD + DIGEST];
+            int off = header(B);
+
+            for (Projective[] W : T)
+                for (Projective P : W)
+                {
+                    off = putCoordinate(B, off, P.X);
+                    off = putCoordinate(B, off, P.Y);
+                }
+
+            System.arraycopy(SHA3.SHAKE256(Arrays.copyOf(B, off), DIGEST), 0, B, off, DIGEST);
+
+            Path tmp = Files.createTempFile(f.toAbsolutePath().getParent(), "gtable", ".tmp");
+            try
+            {
+                Files.write(tmp, B);
+                Files.move(tmp, f, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally
+            {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        /**
+         * Reads a table written by store. The digest catches accidental
+         * damage; verify then checks every entry, so a crafted file that
+         * passes the digest cannot substitute points.
+         *
+         * @param f the file.
+         * @return the table, or null if the file does not hold an intact
+         *         and correct table for this window width.
+         * @throws IOException if the file cannot be read.
+         */
+        static Projective[][] load(Path f) throws IOException
+        {
+            byte[] B = Files.readAllBytes(f);
+            byte[] H = new byte[8];
+            int off = header(H);
+
+            if (B.length != off + WINDOWS * ENTRIES * 2 * COORD + DIGEST
+                    || !Arrays.equals(B, 0, off, H, 0, off)
+                    || !Arrays.equals(B, B.length - DIGEST, B.length,
+                                      SHA3.SHAKE256(Arrays.copyOf(B, B.length - DIGEST), DIGEST), 0, DIGEST))
+                return null;
+
+            Projective[][] T = new Projective[WINDOWS][ENTRIES];
+
+            for (Projective[] W : T)
+                for (int j = 0; j < ENTRIES; j++, off += 2 * COORD)
+                {
+                    W[j] = new Projective(getCoordinate(B, off), getCoordinate(B, off + COORD), new GF(1));
+                }
+
+            return verify(T) ? T : null;
+        }
+
+        /**
+         * Checks every entry of a loaded table against the recurrence
+         * build uses: T[0][0] is G, T[i][j] = T[i][j - 1] + T[i][0], and
+         * T[i + 1][0] = T[i][ENTRIES - 1] + T[i][0]. This costs one
+         * addition per entry, so a file that passes holds exactly the
+         * table build would compute, whatever was written into it.
+         *
+         * @param T the table, with every entry at Z = 1.
+         * @return true IFF every entry is the expected multiple of G.
+         */
+        static boolean verify(Projective[][] T)
+        {
+            if (!T[0][0].X.toBigInteger().equals(G.x) || !T[0][0].Y.toBigInteger().equals(G.y))    return false;
+
+            GF t = new GF();
+
+            for (int i = 0; i < WINDOWS; i++)
+                for (int j = 0; j < ENTRIES; j++)
+                {
+                    if (i == 0 && j == 0)   continue;
+
+                    Projective P = (j > 0) ? T[i][j - 1] : T[i - 1][ENTRIES - 1];
+                    Projective B = (j > 0) ? T[i][0] : T[i - 1][0];
+                    Projective S = new Projective(P).add(B);
+
+                    if (!S.X.equals(t.mul(T[i][j].X, S.Z)) || !S.Y.equals(t.mul(T[i][j].Y, S.Z)))  return false;
+                }
+
+            return true;
+        }
+
+        /**
+         * Loads the table from the file named by ec.gtable, or builds it
+         * and tries to store it there. A missing, damaged or unwritable
+         * file only costs the rebuild.
+         *
+         * @return the table.
+         */
+        private static Projective[][] init()
+        {
+            String name = System.getProperty(TABLE_PROPERTY);
+            Projective[][] T;
+
+            if (name == null)   return build();
+
+            Path f = Path.of(name);
+            try
+            {
+                if (Files.exists(f) && (T = load(f)) != null)   return T;
+            }
+            catch (IOException ignored) {}
+
+            T = build();
+            try
+            {
+                store(T, f);
+            }
+            catch (IOException ignored) {}
+
+            return T;
+        }
+
+        /**
+         * Writes the file header.
+         *
+         * @param B the destination.
+         * @return the offset after the header.
+         */
+        private static int header(byte[] B)
+        {
+            for (int i = 0; i < 4; i++) B[i] = (byte) (MAGIC >>> (24 - 8 * i));
+            for (int i = 4; i < 8; i++) B[i] = (byte) (COMB_BITS >>> (56 - 8 * i));
+
+            return 8;
+        }
+
+        /**
+         * Writes a field element as a big-endian integer of COORD bytes.
+         *
+         * @param B the destination.
+         * @param off the offset in B.
+         * @param v the field element.
+         * @return the offset after the element.
+         */
+        private static int putCoordinate(byte[] B, int off, GF v)
+        {
+            v.encode(B, off);
+            for (int i = 0, j = COORD - 1; i < j; i++, j--)
+            {
+                byte b = B[off + i];
+                B[off + i] = B[off + j];
+                B[off + j] = b;
+            }
+
+            return off + COORD;
+        }
+
+        /**
+         * Reads a field element written by putCoordinate.
+         *
+         * @param B the source.
+         * @param off the offset in B.
+         * @return the field element.
+         */
+        private static GF getCoordinate(byte[] B, int off)
+        {
+            byte[] e = new byte[COORD];
+
+            for (int i = 0; i < COORD; i++) e[i] = B[off + COORD - 1 - i];
+
+            return new GF(e, 0);
+        }
+    }
 }
@@ -0,0 +1,601 @@
+/**
+ * FileName: GF.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * An element of the Ed448 field GF(p), p = 2^448 - 2^224 - 1, held in
+ * sixteen 28-bit limbs, least significant first. Since
+ * 2^448 = 2^224 + 1 (mod p), limb 16 + i of a product folds back onto
+ * limbs i and 8 + i, so reduction is additions and carries only.
+ * Elements are mutable: each operation overwrites this element with
+ * its result and returns it, and the operands may be this element
+ * itself. Limbs are kept below about 2^28 + 2^8 between operations;
+ * the value is only reduced below p on the way out.
+ */
+final class GF
+{
+    /**
+     * Number of limbs.
+     */
+    static final int LIMBS = 16;
+    /**
+     * Bits per limb.
+     */
+    static final int BITS = 28;
+    /**
+     * Byte length of an encoded element.
+     */
+    static final int BYTES = 56;
+    /**
+     * Mask of one limb.
+     */
+    private static final long MASK = (1L << BITS) - 1;
+    /**
+     * The field prime as a BigInteger.
+     */
+    static final BigInteger P = BigInteger.ONE.shiftLeft(448).subtract(BigInteger.ONE.shiftLeft(224)).subtract(BigInteger.ONE);
+    /**
+     * The element 0; never to be overwritten.
+     */
+    static final GF ZERO = new GF();
+    /**
+     * The element 1; never to be overwritten.
+     */
+    static final GF ONE = new GF(1);
+
+    /**
+     * The limbs.
+     */
+    final long[] l = new long[LIMBS];
+
+    /**
+     * Constructs the element 0.
+     */
+    GF() {}
+
+    /**
+     * Constructs a small element.
+     *
+     * @param v the value, 0 <= v < 2^28.
+     */
+    GF(int v)
+    {
+        l[0] = v;
+    }
+
+    /**
+     * Constructs a copy of an element.
+     *
+     * @param a the element to copy.
+     */
+    GF(GF a)
+    {
+        set(a);
+    }
+
+    /**
+     * Constructs the element v mod p.
+     *
+     * @param v the integer.
+     */
+    GF(BigInteger v)
+    {
+        byte[] e = v.mod(P).toByteArray();          // Big-endian, maybe with a sign byte
+        byte[] B = new byte[BYTES];
+
+        for (int i = 0; i < Math.min(e.length, BYTES); i++) B[i] = e[e.length - 1 - i];
+
+        decode(B, 0);
+    }
+
+    /**
+     * Constructs an element from its 56-byte little-endian encoding.
+     * Values in [p, 2^448) are accepted and reduced.
+     *
+     * @param B the encoding.
+     * @param off the offset of the encoding in B.
+     */
+    GF(byte[] B, int off)
+    {
+        decode(B, off);
+    }
+
+    /**
+     * Overwrites this element with a.
+     *
+     * @param a the element to copy.
+     * @return this element.
+     */
+    GF set(GF a)
+    {
+        System.arraycopy(a.l, 0, l, 0, LIMBS);
+
+        return this;
+    }
+
+    /**
+     * Overwrites this element with a where mask is all ones, without
+     * branching on it.
+     *
+     * @param a the element to copy.
+     * @param mask 0 to keep this element, -1 to take a.
+     * @return this element.
+     */
+    GF cmov(GF a, long mask)
+    {
+        for (int i = 0; i < LIMBS; i++) l[i] ^= (l[i] ^ a.l[i]) & mask;
+
+        return this;
+    }
+
+    /**
+     * this = a + b.
+     *
+     * @param a the first summand.
+     * @param b the second summand.
+     * @return this element.
+     */
+    GF add(GF a, GF b)
+    {
+        for (int i = 0; i < LIMBS; i++) l[i] = a.l[i] + b.l[i];
+        carry();
+
+        return this;
+    }
+
+    /**
+     * this = a - b, computed as a + 2p - b so that no limb goes negative.
+     *
+     * @param a the minuend.
+     * @param b the subtrahend.
+     * @return this element.
+     */
+    GF sub(GF a, GF b)
+    {
+        for (int i = 0; i < LIMBS; i++) l[i] = a.l[i] + (i == 8 ? 2 * MASK - 2 : 2 * MASK) - b.l[i];
+        carry();
+
+        return this;
+    }
+
+    /**
+     * this = -a.
+     *
+     * @param a the element to negate.
+     * @return this element.
+     */
+    GF neg(GF a)
+    {
+        for (int i = 0; i < LIMBS; i++) l[i] = (i == 8 ? 2 * MASK - 2 : 2 * MASK) - a.l[i];
+        carry();
+
+        return this;
+    }
+
+    /**
+     * this = a * c for a small constant c.
+     *
+     * @param a the element.
+     * @param c the constant, 0 <= c < 2^24.
+     * @return this element.
+     */
+    GF mul(GF a, int c)
+    {
+        for (int i = 0; i < LIMBS; i++) l[i] = a.l[i] * c;
+        carry();
+
+        return this;
+    }
+
+    /**
+     * this = a * b. Schoolbook product with the fold of the high limbs
+     * merged into the column sums.
+     *
+     * @param a the first factor.
+     * @param b the second factor.
+     * @return this element.
+     */
+    GF mul(GF a, GF b)
+    {
+        long a0 = a.l[0], a1 = a.l[1], a2 = a.l[2], a3 = a.l[3], a4 = a.l[4], a5 = a.l[5], a6 = a.l[6], a7 = a.l[7];
+        long a8 = a.l[8], a9 = a.l[9], a10 = a.l[10], a11 = a.l[11], a12 = a.l[12], a13 = a.l[13], a14 = a.l[14], a15 = a.l[15];
+        long b0 = b.l[0], b1 = b.l[1], b2 = b.l[2], b3 = b.l[3], b4 = b.l[4], b5 = b.l[5], b6 = b.l[6], b7 = b.l[7];
+        long b8 = b.l[8], b9 = b.l[9], b10 = b.l[10], b11 = b.l[11], b12 = b.l[12], b13 = b.l[13], b14 = b.l[14], b15 = b.l[15];
+
+        long c0 = a0 * b0 + a1 * b15 + a2 * b14 + a3 * b13 + a4 * b12 + a5 * b11 + a6 * b10 + a7 * b9 + a8 * b8 + a9 * b7
+                + a10 * b6 + a11 * b5 + a12 * b4 + a13 * b3 + a14 * b2 + a15 * b1 + a9 * b15 + a10 * b14 + a11 * b13
+                + a12 * b12 + a13 * b11 + a14 * b10 + a15 * b9;
+        long c1 = a0 * b1 + a1 * b0 + a2 * b15 + a3 * b14 + a4 * b13 + a5 * b12 + a6 * b11 + a7 * b10 + a8 * b9 + a9 * b8
+                + a10 * b7 + a11 * b6 + a12 * b5 + a13 * b4 + a14 * b3 + a15 * b2 + a10 * b15 + a11 * b14 + a12 * b13
+                + a13 * b12 + a14 * b11 + a15 * b10;
+        long c2 = a0 * b2 + a1 * b1 + a2 * b0 + a3 * b15 + a4 * b14 + a5 * b13 + a6 * b12 + a7 * b11 + a8 * b10 + a9 * b9
+                + a10 * b8 + a11 * b7 + a12 * b6 + a13 * b5 + a14 * b4 + a15 * b3 + a11 * b15 + a12 * b14 + a13 * b13
+                + a14 * b12 + a15 * b11;
+        long c3 = a0 * b3 + a1 * b2 + a2 * b1 + a3 * b0 + a4 * b15 + a5 * b14 + a6 * b13 + a7 * b12 + a8 * b11 + a9 * b10
+                + a10 * b9 + a11 * b8 + a12 * b7 + a13 * b6 + a14 * b5 + a15 * b4 + a12 * b15 + a13 * b14 + a14 * b13
+                + a15 * b12;
+        long c4 = a0 * b4 + a1 * b3 + a2 * b2 + a3 * b1 + a4 * b0 + a5 * b15 + a6 * b14 + a7 * b13 + a8 * b12 + a9 * b11
+                + a10 * b10 + a11 * b9 + a12 * b8 + a13 * b7 + a14 * b6 + a15 * b5 + a13 * b15 + a14 * b14 + a15 * b13;
+        long c5 = a0 * b5 + a1 * b4 + a2 * b3 + a3 * b2 + a4 * b1 + a5 * b0 + a6 * b15 + a7 * b14 + a8 * b13 + a9 * b12
+                + a10 * b11 + a11 * b10 + a12 * b9 + a13 * b8 + a14 * b7 + a15 * b6 + a14 * b15 + a15 * b14;
+        long c6 = a0 * b6 + a1 * b5 + a2 * b4 + a3 * b3 + a4 * b2 + a5 * b1 + a6 * b0 + a7 * b15 + a8 * b14 + a9 * b13
+                + a10 * b12 + a11 * b11 + a12 * b10 + a13 * b9 + a14 * b8 + a15 * b7 + a15 * b15;
+        long c7 = a0 * b7 + a1 * b6 + a2 * b5 + a3 * b4 + a4 * b3 + a5 * b2 + a6 * b1 + a7 * b0 + a8 * b15 + a9 * b14
+                + a10 * b13 + a11 * b12 + a12 * b11 + a13 * b10 + a14 * b9 + a15 * b8;
+        long c8 = a0 * b8 + a1 * b7 + a2 * b6 + a3 * b5 + a4 * b4 + a5 * b3 + a6 * b2 + a7 * b1 + a8 * b0 + a1 * b15
+                + a2 * b14 + a3 * b13 + a4 * b12 + a5 * b11 + a6 * b10 + a7 * b9 + a8 * b8 + a9 * b7 + a10 * b6
+                + a11 * b5 + a12 * b4 + a13 * b3 + a14 * b2 + a15 * b1 + 2 * (a9 * b15 + a10 * b14 + a11 * b13
+                + a12 * b12 + a13 * b11 + a14 * b10 + a15 * b9);
+        long c9 = a0 * b9 + a1 * b8 + a2 * b7 + a3 * b6 + a4 * b5 + a5 * b4 + a6 * b3 + a7 * b2 + a8 * b1 + a9 * b0
+                + a2 * b15 + a3 * b14 + a4 * b13 + a5 * b12 + a6 * b11 + a7 * b10 + a8 * b9 + a9 * b8 + a10 * b7
+                + a11 * b6 + a12 * b5 + a13 * b4 + a14 * b3 + a15 * b2 + 2 * (a10 * b15 + a11 * b14 + a12 * b13
+                + a13 * b12 + a14 * b11 + a15 * b10);
+        long c10 = a0 * b10 + a1 * b9 + a2 * b8 + a3 * b7 + a4 * b6 + a5 * b5 + a6 * b4 + a7 * b3 + a8 * b2 + a9 * b1
+                + a10 * b0 + a3 * b15 + a4 * b14 + a5 * b13 + a6 * b12 + a7 * b11 + a8 * b10 + a9 * b9 + a10 * b8
+                + a11 * b7 + a12 * b6 + a13 * b5 + a14 * b4 + a15 * b3 + 2 * (a11 * b15 + a12 * b14 + a13 * b13
+                + a14 * b12 + a15 * b11);
+        long c11 = a0 * b11 + a1 * b10 + a2 * b9 + a3 * b8 + a4 * b7 + a5 * b6 + a6 * b5 + a7 * b4 + a8 * b3 + a9 * b2
+                + a10 * b1 + a11 * b0 + a4 * b15 + a5 * b14 + a6 * b13 + a7 * b12 + a8 * b11 + a9 * b10 + a10 * b9
+                + a11 * b8 + a12 * b7 + a13 * b6 + a14 * b5 + a15 * b4 + 2 * (a12 * b15 + a13 * b14 + a14 * b13
+                + a15 * b12);
+        long c12 = a0 * b12 + a1 * b11 + a2 * b10 + a3 * b9 + a4 * b8 + a5 * b7 + a6 * b6 + a7 * b5 + a8 * b4 + a9 * b3
+                + a10 * b2 + a11 * b1 + a12 * b0 + a5 * b15 + a6 * b14 + a7 * b13 + a8 * b12 + a9 * b11 + a10 * b10
+                + a11 * b9 + a12 * b8 + a13 * b7 + a14 * b6 + a15 * b5 + 2 * (a13 * b15 + a14 * b14 + a15 * b13);
+        long c13 = a0 * b13 + a1 * b12 + a2 * b11 + a3 * b10 + a4 * b9 + a5 * b8 + a6 * b7 + a7 * b6 + a8 * b5 + a9 * b4
+                + a10 * b3 + a11 * b2 + a12 * b1 + a13 * b0 + a6 * b15 + a7 * b14 + a8 * b13 + a9 * b12 + a10 * b11
+                + a11 * b10 + a12 * b9 + a13 * b8 + a14 * b7 + a15 * b6 + 2 * (a14 * b15 + a15 * b14);
+        long c14 = a0 * b14 + a1 * b13 + a2 * b12 + a3 * b11 + a4 * b10 + a5 * b9 + a6 * b8 + a7 * b7 + a8 * b6 + a9 * b5
+                + a10 * b4 + a11 * b3 + a12 * b2 + a13 * b1 + a14 * b0 + a7 * b15 + a8 * b14 + a9 * b13 + a10 * b12
+                + a11 * b11 + a12 * b10 + a13 * b9 + a14 * b8 + a15 * b7 + 2 * (a15 * b15);
+        long c15 = a0 * b15 + a1 * b14 + a2 * b13 + a3 * b12 + a4 * b11 + a5 * b10 + a6 * b9 + a7 * b8 + a8 * b7 + a9 * b6
+                + a10 * b5 + a11 * b4 + a12 * b3 + a13 * b2 + a14 * b1 + a15 * b0 + a8 * b15 + a9 * b14 + a10 * b13
+                + a11 * b12 + a12 * b11 + a13 * b10 + a14 * b9 + a15 * b8;
+
+        l[0] = c0; l[1] = c1; l[2] = c2; l[3] = c3; l[4] = c4; l[5] = c5; l[6] = c6; l[7] = c7;
+        l[8] = c8; l[9] = c9; l[10] = c10; l[11] = c11; l[12] = c12; l[13] = c13; l[14] = c14; l[15] = c15;
+        carry();
+
+        return this;
+    }
+
+    /**
+     * this = a^2.
+     *
+     * @param a the element.
+     * @return this element.
+     */
+    GF sqr(GF a)
+    {
+        long a0 = a.l[0], a1 = a.l[1], a2 = a.l[2], a3 = a.l[3], a4 = a.l[4], a5 = a.l[5], a6 = a.l[6], a7 = a.l[7];
+        long a8 = a.l[8], a9 = a.l[9], a10 = a.l[10], a11 = a.l[11], a12 = a.l[12], a13 = a.l[13], a14 = a.l[14], a15 = a.l[15];
+
+        long c0 = a0 * a0 + a8 * a8 + a12 * a12 + 2 * (a1 * a15 + a2 * a14 + a3 * a13 + a4 * a12 + a5 * a11 + a6 * a10
+                + a7 * a9 + a9 * a15 + a10 * a14 + a11 * a13);
+        long c1 = 2 * (a0 * a1 + a2 * a15 + a3 * a14 + a4 * a13 + a5 * a12 + a6 * a11 + a7 * a10 + a8 * a9 + a10 * a15
+                + a11 * a14 + a12 * a13);
+        long c2 = a1 * a1 + a9 * a9 + a13 * a13 + 2 * (a0 * a2 + a3 * a15 + a4 * a14 + a5 * a13 + a6 * a12 + a7 * a11
+                + a8 * a10 + a11 * a15 + a12 * a14);
+        long c3 = 2 * (a0 * a3 + a1 * a2 + a4 * a15 + a5 * a14 + a6 * a13 + a7 * a12 + a8 * a11 + a9 * a10 + a12 * a15
+                + a13 * a14);
+        long c4 = a2 * a2 + a10 * a10 + a14 * a14 + 2 * (a0 * a4 + a1 * a3 + a5 * a15 + a6 * a14 + a7 * a13 + a8 * a12
+                + a9 * a11 + a13 * a15);
+        long c5 = 2 * (a0 * a5 + a1 * a4 + a2 * a3 + a6 * a15 + a7 * a14 + a8 * a13 + a9 * a12 + a10 * a11 + a14 * a15);
+        long c6 = a3 * a3 + a11 * a11 + a15 * a15 + 2 * (a0 * a6 + a1 * a5 + a2 * a4 + a7 * a15 + a8 * a14 + a9 * a13
+                + a10 * a12);
+        long c7 = 2 * (a0 * a7 + a1 * a6 + a2 * a5 + a3 * a4 + a8 * a15 + a9 * a14 + a10 * a13 + a11 * a12);
+        long c8 = a4 * a4 + a8 * a8 + 2 * (a0 * a8 + a1 * a7 + a1 * a15 + a2 * a6 + a2 * a14 + a3 * a5 + a3 * a13
+                + a4 * a12 + a5 * a11 + a6 * a10 + a7 * a9 + a12 * a12) + 4 * (a9 * a15 + a10 * a14 + a11 * a13);
+        long c9 = 2 * (a0 * a9 + a1 * a8 + a2 * a7 + a2 * a15 + a3 * a6 + a3 * a14 + a4 * a5 + a4 * a13 + a5 * a12
+                + a6 * a11 + a7 * a10 + a8 * a9) + 4 * (a10 * a15 + a11 * a14 + a12 * a13);
+        long c10 = a5 * a5 + a9 * a9 + 2 * (a0 * a10 + a1 * a9 + a2 * a8 + a3 * a7 + a3 * a15 + a4 * a6 + a4 * a14
+                + a5 * a13 + a6 * a12 + a7 * a11 + a8 * a10 + a13 * a13) + 4 * (a11 * a15 + a12 * a14);
+        long c11 = 2 * (a0 * a11 + a1 * a10 + a2 * a9 + a3 * a8 + a4 * a7 + a4 * a15 + a5 * a6 + a5 * a14 + a6 * a13
+                + a7 * a12 + a8 * a11 + a9 * a10) + 4 * (a12 * a15 + a13 * a14);
+        long c12 = a6 * a6 + a10 * a10 + 2 * (a0 * a12 + a1 * a11 + a2 * a10 + a3 * a9 + a4 * a8 + a5 * a7 + a5 * a15
+                + a6 * a14 + a7 * a13 + a8 * a12 + a9 * a11 + a14 * a14) + 4 * (a13 * a15);
+        long c13 = 2 * (a0 * a13 + a1 * a12 + a2 * a11 + a3 * a10 + a4 * a9 + a5 * a8 + a6 * a7 + a6 * a15 + a7 * a14
+                + a8 * a13 + a9 * a12 + a10 * a11) + 4 * (a14 * a15);
+        long c14 = a7 * a7 + a11 * a11 + 2 * (a0 * a14 + a1 * a13 + a2 * a12 + a3 * a11 + a4 * a10 + a5 * a9 + a6 * a8
+                + a7 * a15 + a8 * a14 + a9 * a13 + a10 * a12 + a15 * a15);
+        long c15 = 2 * (a0 * a15 + a1 * a14 + a2 * a13 + a3 * a12 + a4 * a11 + a5 * a10 + a6 * a9 + a7 * a8 + a8 * a15
+                + a9 * a14 + a10 * a13 + a11 * a12);
+
+        l[0] = c0; l[1] = c1; l[2] = c2; l[3] = c3; l[4] = c4; l[5] = c5; l[6] = c6; l[7] = c7;
+        l[8] = c8; l[9] = c9; l[10] = c10; l[11] = c11; l[12] = c12; l[13] = c13; l[14] = c14; l[15] = c15;
+        carry();
+
+        return this;
+    }
+
+    /**
+     * this = a^(2^n), by n squarings.
+     *
+     * @param a the element.
+     * @param n the number of squarings.
+     * @return this element.
+     */
+    GF sqr(GF a, int n)
+    {
+        sqr(a);
+        for (int i = 1; i < n; i++) sqr(this);
+
+        return this;
+    }
+
+    /**
+     * this = a^((p - 3) / 4) = a^(2^446 - 2^222 - 1). The exponent is
+     * 223 ones, a zero and 222 ones, so the chain builds a^(2^k - 1) for
+     * k = 1, 2, 3, 6, 12, 24, 48, 96, 108, 111, 222 and 223.
+     *
+     * @param a the element.
+     * @return this element.
+     */
+    GF powQuarter(GF a)
+    {
+        GF x1 = new GF(a);
+        GF x3 = new GF();
+        GF x12 = new GF();
+        GF t = new GF();
+        GF u = new GF();
+
+        t.sqr(x1).mul(t, x1);           // a^(2^2 - 1)
+        x3.sqr(t).mul(x3, x1);
+        t.sqr(x3, 3).mul(t, x3);        // a^(2^6 - 1)
+        x12.sqr(t, 6).mul(x12, t);
+        t.sqr(x12, 12).mul(t, x12);     // a^(2^24 - 1)
+        u.sqr(t, 24).mul(u, t);         // a^(2^48 - 1)
+        t.sqr(u, 48).mul(t, u);         // a^(2^96 - 1)
+        t.sqr(t, 12).mul(t, x12);       // a^(2^108 - 1)
+        t.sqr(t, 3).mul(t, x3);         // a^(2^111 - 1)
+        u.sqr(t, 111).mul(u, t);        // a^(2^222 - 1)
+        t.sqr(u).mul(t, x1);            // a^(2^223 - 1)
+
+        return sqr(t, 223).mul(this, u);
+    }
+
+    /**
+     * this = sqrt(u / v), if it exists, with one exponentiation and no
+     * inversion: since p mod 4 = 3, the candidate root
+     * (u / v)^((p + 1) / 4) equals u^3 v (u^5 v^3)^((p - 3) / 4).
+     *
+     * @param u the numerator.
+     * @param v the denominator, not 0.
+     * @return true IFF u / v is a square, i.e. v * this^2 == u; if not,
+     *          this element is left holding the failed candidate.
+     */
+    boolean sqrtRatio(GF u, GF v)
+    {
+        GF u0 = new GF(u);                          // Copies, in case this is u or v
+        GF v0 = new GF(v);
+        GF t = new GF().sqr(u0);                    // u^2
+        GF c = new GF().mul(t, u0);
+        GF w = new GF().sqr(v0);
+
+        c.mul(c, v0);                               // u^3 v
+        w.mul(w, t).mul(w, c);                      // u^5 v^3 = u^3 v * u^2 v^2
+        powQuarter(w).mul(this, c);
+
+        return t.sqr(this).mul(t, v0).equals(u0);
+    }
+
+    /**
+     * this = 1 / a, as a^(p - 2) = (a^((p - 3) / 4))^4 * a. The
+     * inverse of 0 is 0.
+     *
+     * @param a the element.
+     * @return this element.
+     */
+    GF inv(GF a)
+    {
+        GF t = new GF(a);
+
+        return powQuarter(a).sqr(this, 2).mul(this, t);
+    }
+
+    /**
+     * Inverts every element of a in place with Montgomery's trick: one
+     * inversion of the product of all elements, then three
+     * multiplications per element to peel the individual inverses off
+     * the running products. Elements equal to 0 are left at 0 and kept
+     * out of the product.
+     *
+     * @param a the elements to invert.
+     */
+    static void invertAll(GF[] a)
+    {
+        GF[] c = new GF[a.length];                  // c[i] = a[0] ... a[i - 1]
+        GF acc = new GF(1);
+        boolean[] zero = new boolean[a.length];
+
+        for (int i = 0; i < a.length; i++)
+        {
+            c[i] = new GF(acc);
+            zero[i] = a[i].isZero();
+            if (!zero[i])   acc.mul(acc, a[i]);
+        }
+
+        acc.inv(acc);                               // 1 / (a[0] ... a[n - 1])
+
+        for (int i = a.length - 1; i >= 0; i--)
+        {
+            if (zero[i])    continue;
+
+            c[i].mul(c[i], acc);                    // 1 / a[i]
+            acc.mul(acc, a[i]);                     // 1 / (a[0] ... a[i - 1])
+            a[i].set(c[i]);
+        }
+    }
+
+    /**
+     * Tests whether this element is 0 mod p.
+     *
+     * @return true IFF this element is 0.
+     */
+    boolean isZero()
+    {
+        long[] t = frozen();
+        long z = 0;
+
+        for (long v : t)    z |= v;
+
+        return z == 0;
+    }
+
+    /**
+     * The least significant bit of the reduced value.
+     *
+     * @return true IFF the value in [0, p) is odd.
+     */
+    boolean lsb()
+    {
+        return (frozen()[0] & 1) != 0;
+    }
+
+    /**
+     * Writes the 56-byte little-endian encoding of the reduced value.
+     *
+     * @param B the destination.
+     * @param off the offset in B.
+     */
+    void encode(byte[] B, int off)
+    {
+        long[] t = frozen();
+
+        for (int i = 0; i < LIMBS; i += 2)
+        {
+            long v = t[i] | (t[i + 1] << BITS);     // 56 bits, 7 bytes
+            for (int j = 0; j < 7; j++) B[off + 7 * (i / 2) + j] = (byte) (v >>> (8 * j));
+        }
+    }
+
+    /**
+     * The reduced value as a BigInteger.
+     *
+     * @return the value in [0, p).
+     */
+    BigInteger toBigInteger()
+    {
+        byte[] B = new byte[BYTES];
+        byte[] e = new byte[BYTES];
+
+        encode(B, 0);
+        for (int i = 0; i < BYTES; i++) e[i] = B[BYTES - 1 - i];
+
+        return new BigInteger(1, e);
+    }
+
+    /**
+     * Compare this element with object o for equality mod p.
+     *
+     * @param o object to which this element is to be compared.
+     * @return true IFF o is an element with the same reduced value.
+     */
+    public boolean equals(Object o)
+    {
+        if (this == o)  return true;
+        if (!(o instanceof GF)) return false;
+
+        return Arrays.equals(frozen(), ((GF) o).frozen());
+    }
+
+    public int hashCode()
+    {
+        return Arrays.hashCode(frozen());
+    }
+
+    public String toString()
+    {
+        return toBigInteger().toString();
+    }
+
+    /**
+     * Reads a 56-byte little-endian encoding into the limbs.
+     *
+     * @param B the encoding.
+     * @param off the offset in B.
+     */
+    private void decode(byte[] B, int off)
+    {
+        for (int i = 0; i < LIMBS; i += 2)
+        {
+            long v = 0;                             // 56 bits, 7 bytes
+            for (int j = 0; j < 7; j++) v |= (B[off + 7 * (i / 2) + j] & 0xFFL) << (8 * j);
+
+            l[i] = v & MASK;
+            l[i + 1] = v >>> BITS;
+        }
+    }
+
+    /**
+     * Propagates the carries of the limbs; the carry out of the top
+     * limb, weight 2^448, is added back at 2^0 and 2^224.
+     */
+    private void carry()
+    {
+        for (int i = 0; i < LIMBS - 1; i++)
+        {
+            l[i + 1] += l[i] >> BITS;
+            l[i] &= MASK;
+        }
+
+        long c = l[LIMBS - 1] >> BITS;
+        l[LIMBS - 1] &= MASK;
+        l[0] += c;
+        l[8] += c;
+        l[1] += l[0] >> BITS;
+        l[0] &= MASK;
+        l[9] += l[8] >> BITS;
+        l[8] &= MASK;
+    }
+
+    /**
+     * The limbs of the value reduced into [0, p), with every limb
+     * exactly 28 bits. Runs in constant time.
+     *
+     * @return a new array of limbs.
+     */
+    private long[] frozen()
+    {
+        long[] t = l.clone();
+        long[] u = new long[LIMBS];
+        long b = 0;
+
+        for (int n = 0; n < 2; n++)
+        {
+            for (int i = 0; i < LIMBS - 1; i++)
+            {
+                t[i + 1] += t[i] >> BITS;
+                t[i] &= MASK;
+            }
+
+            long c = t[LIMBS - 1] >> BITS;
+            t[LIMBS - 1] &= MASK;
+            t[0] += c;
+            t[8] += c;
+        }
+        for (int i = 0; i < LIMBS - 1; i++)         // Now t < 2^448 < 2p
+        {
+            t[i + 1] += t[i] >> BITS;
+            t[i] &= MASK;
+        }
+
+        for (int i = 0; i < LIMBS; i++)             // u = t - p
+        {
+            u[i] = t[i] - (i == 8 ? MASK - 1 : MASK) + b;
+            b = u[i] >> BITS;
+            u[i] &= MASK;
+        }
+
+        long keep = b;                              // -1 if t < p, else 0
+        for (int i = 0; i < LIMBS; i++) t[i] = (t[i] & keep) | (u[i] & ~keep);
+
+        return t;
+    }
+}
@@ -24,17 +24,74 @@ class IF
      * @param n the integer to be encoded and prepended.
      * @return the encoded byte string.
      */
-    static String bytepad(String s, int n)
+    static String bytepad(String s, int n) {  return bytepad(BitString.of(s), n).toString();   }
+
+    /**
+     * Bit string bytepad. Prepends left_encode(w) to X and pads the
+     * result with zero bits until its length in bytes is a multiple of w.
+     * @param X the bit string.
+     * @param w the integer to be encoded and prepended.
+     * @return the padded bit string.
+     */
+    static BitString bytepad(BitString X, int w)
     {
-        String bin;
+        BitString z = left_encode_bits(w).append(X);
+        int bytes = (z.length() + 7) / 8;
+
+        return z.append(BitString.zeros(8 * (((bytes + w - 1) / w) * w) - z.length()));
+    }
 
-        bin = left_encode(n).concat(s);
+    /**
+     * Byte-oriented bytepad. Prepends left_encode(w) to X and pads the
+     * result with zero bytes until its length is a multiple of w.
+     * @param X the byte string.
+     * @param w the integer to be encoded and prepended.
+     * @return the padded byte string.
+     */
+    static byte[] bytepad(byte[] X, int w)
+    {
+        byte[] enc = left_encode_bytes(w);
+        byte[] z = new byte[((enc.length + X.length + w - 1) / w) * w];
 
-        while ((bin.length() % 8) != 0) bin = bin.concat("0");
+        System.arraycopy(enc, 0, z, 0, enc.length);
+        System.arraycopy(X, 0, z, enc.length, X.length);
 
-        while (((bin.length() / 8) % n) != 0) bin = bin.concat("00000000");
+        return z;
+    }
 
-        return bin;
+    /**
+     * Packs a bit string into bytes. Bit i of the string becomes bit (i mod 8),
+     * counted from the least significant bit, of byte i / 8. A character
+     * other than '0' is a one bit. A partial last byte is zero-filled.
+     * @param s the bit string.
+     * @return the packed bytes.
+     */
+    static byte[] bitsToBytes(String s)
+    {
+        byte[] B = new byte[(s.length() + 7) / 8];
+
+        for (int i = 0; i < s.length(); i++)
+        {
+            if (s.charAt(i) != '0') B[i >>> 3] |= (byte) (1 << (i & 7));
+        }
+
+        return B;
+    }
+
+    /**
+     * Unpacks the first n bits of a byte array into a bit string,
+     * the inverse of bitsToBytes.
+     * @param B the bytes.
+     * @param n the number of bits.
+     * @return the bit string of length n.
+     */
+    static String bytesToBits(byte[] B, int n)
+    {
+        StringBuilder sb = new StringBuilder(n);
+
+        for (int i = 0; i < n; i++) sb.append(((B[i >>> 3] >>> (i & 7)) & 1) == 0 ? '0' : '1');
+
+        return sb.toString();
     }
 
     /**
@@ -44,7 +101,32 @@ class IF
      * @param s the string to be encoded.
      * @return the encoded string.
      */
-    static String encode_string(String s) { return left_encode(s.length()).concat(s);   }
+    static String encode_string(String s) { return encode_string(BitString.of(s)).toString();   }
+
+    /**
+     * Bit string encode_string. The output is the left_encode of the
+     * length of s followed by s.
+     * @param s the bits to be encoded.
+     * @return the encoded bits.
+     */
+    static BitString encode_string(BitString s) {  return left_encode_bits(s.length()).append(s);   }
+
+    /**
+     * Byte-oriented encode_string. The output is the left_encode of the
+     * bit length of s followed by s.
+     * @param s the bytes to be encoded.
+     * @return the encoded bytes.
+     */
+    static byte[] encode_string(byte[] s)
+    {
+        byte[] enc = left_encode_bytes(8L * s.length);
+        byte[] z = new byte[enc.length + s.length];
+
+        System.arraycopy(enc, 0, z, 0, enc.length);
+        System.arraycopy(s, 0, z, enc.length, s.length);
+
+        return z;
+    }
 
     /**
      * Converts an integer into a binary string.
@@ -67,23 +149,35 @@ class IF
 
     /**
      * Encodes an integer as a byte string, starting with the number of bytes required
-     * to represent the binary number and ending with the binary number. The number of
-     * bytes required as well as the binary number are both reversed before being parsed.
+     * to represent the binary number and ending with the binary number. Each byte is
+     * written least significant bit first.
      * @param n the integer to be encoded.
      * @return the byte string encryption of the integer.
      */
-    static String left_encode(int n)
-    {
-        String bin;             // Binary string representation of the number
-        String len;             // Length of the byte string
+    static String left_encode(int n) {  return left_encode_bits(n).toString();   }
 
-        bin = intToString(n);
-        bin = reverse(bin);
+    /**
+     * Bit string left_encode, the bits of left_encode_bytes(n).
+     * @param n the non-negative integer to be encoded.
+     * @return the encoded bits.
+     */
+    static BitString left_encode_bits(long n) {  return BitString.of(left_encode_bytes(n));   }
 
-        len = intToString(bin.length() / 8);
-        len = reverse(len);
+    /**
+     * Byte-oriented left_encode. The first byte is the number of bytes
+     * required to represent n, followed by n in big-endian order.
+     * @param n the non-negative integer to be encoded.
+     * @return the encoded bytes.
+     */
+    static byte[] left_encode_bytes(long n)
+    {
+        int k = Math.max(1, (71 - Long.numberOfLeadingZeros(n)) / 8);     // Bytes needed for n
+        byte[] z = new byte[k + 1];
+
+        z[0] = (byte) k;
+        for (int i = 1; i <= k; i++) z[i] = (byte) (n >>> (8 * (k - i)));
 
-        return len.concat(bin);
+        return z;
     }
 
     /**
@@ -112,32 +206,53 @@ class IF
      * @param m non-negative integer
      * @return string such that the length is a positive multiple of x.
      */
-    static String pad101(int x, int m)
+    static String pad101(int x, int m) {  return pad101_bits(x, m).toString();   }
+
+    /**
+     * Bit string pad10*1.
+     * @param x positive integer
+     * @param m non-negative integer
+     * @return bits 1 0^j 1 such that m plus their length is a positive
+     *          multiple of x.
+     */
+    static BitString pad101_bits(int x, int m)
     {
         int j = mod(-m-2, x);
 
-        return "1".concat("0".repeat(j)).concat("1");
+        return BitString.ones(1).append(BitString.zeros(j)).append(BitString.ones(1));
     }
 
     /**
      * Encodes an integer as a byte string, starting with the binary number and ending
-     * with the number of bytes required to represent the binary number. The number of
-     * bytes required as well as the binary number are both reversed before being parsed.
+     * with the number of bytes required to represent the binary number. Each byte is
+     * written least significant bit first.
      * @param n the integer to be encoded.
      * @return the byte string encryption of the integer.
      */
-    static String right_encode(int n)
-    {
-        String bin;             // Binary string representation of the number
-        String len;             // Length of the byte string
+    static String right_encode(int n) {  return right_encode_bits(n).toString();   }
 
-        bin = intToString(n);
-        bin = reverse(bin);
+    /**
+     * Bit string right_encode, the bits of right_encode_bytes(n).
+     * @param n the non-negative integer to be encoded.
+     * @return the encoded bits.
+     */
+    static BitString right_encode_bits(long n) {  return BitString.of(right_encode_bytes(n));   }
+
+    /**
+     * Byte-oriented right_encode. n in big-endian order, followed by
+     * the number of bytes required to represent n.
+     * @param n the non-negative integer to be encoded.
+     * @return the encoded bytes.
+     */
+    static byte[] right_encode_bytes(long n)
+    {
+        int k = Math.max(1, (71 - Long.numberOfLeadingZeros(n)) / 8);     // Bytes needed for n
+        byte[] z = new byte[k + 1];
 
-        len = intToString(bin.length() / 8);
-        len = reverse(len);
+        for (int i = 0; i < k; i++) z[i] = (byte) (n >>> (8 * (k - 1 - i)));
+        z[k] = (byte) k;
 
-        return bin.concat(len);
+        return z;
     }
 
 
@@ -164,6 +279,29 @@ class IF
         return (r.multiply(r).subtract(v).mod(p).signum() == 0) ? r : null;
     }
 
+    /**
+     * Computes a square root of v in GF(p) with a specified least
+     * significant bit, if such root exists. Since p mod 4 = 3 the
+     * candidate root is v^((p + 1) / 4) = v^((p - 3) / 4) * v.
+     *
+     * @param v the radicand
+     * @param lsb desired least significant bit: true == 1, false == 0
+     * @return a square root r of v with desired lsb if such a root
+     *          exists, otherwise null.
+     */
+    static GF sqrt(GF v, boolean lsb)
+    {
+        if (v.isZero()) return new GF();
+
+        GF r = new GF().powQuarter(v);
+
+        r.mul(r, v);
+
+        if (r.lsb() != lsb) r.neg(r);                       // lsb correction
+
+        return new GF().sqr(r).equals(v) ? r : null;
+    }
+
     /**
      * Truncates a string at the specified index.
      * The new string is comprised of s[0] to s[i - 1].
@@ -175,32 +313,27 @@ class IF
 
     /**
      * XORs to strings together.
-     * @param s1 first string.
-     * @param s2 second string.
-     * @return the first and second string XORed together.
+     * @param s1 first bit string.
+     * @param s2 second bit string.
+     * @return the first and second string XORed together, as long as the shorter.
      */
     static String xorStrings(String s1, String s2)
     {
-        byte[] b1;              // Byte array of s1
-        byte[] b2;              // Byte array of s2
-        byte[] xor;             // s1 ^ s2 byte array
-
-        b1 = s1.getBytes();
-        b2 = s2.getBytes();
-        xor = new byte[Math.min(b1.length, b2.length)];
-
-        for (int i = 0; i < xor.length; i++)
-        {
-            xor[i] = (byte) (b1[i] ^ b2[i]);
-        }
-
-        return new String(xor);
+        return BitString.of(s1).xor(BitString.of(s2)).toString();
     }
 
     /**
-     * Reverse the direction of a string.
-     * @param s the string to be reversed.
-     * @return the reversed string.
+     * XORs two byte arrays together.
+     * @param b1 first array.
+     * @param b2 second array.
+     * @return the first and second array XORed together, as long as the shorter.
      */
-    private static String reverse(String s) { return new StringBuilder(s).reverse().toString(); }
+    static byte[] xorBytes(byte[] b1, byte[] b2)
+    {
+        byte[] xor = new byte[Math.min(b1.length, b2.length)];
+
+        for (int i = 0; i < xor.length; i++)    xor[i] = (byte) (b1[i] ^ b2[i]);
+
+        return xor;
+    }
 }
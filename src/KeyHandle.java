@@ -0,0 +1,355 @@
+/**
+ * FileName: KeyHandle.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An elliptic private key derived from a passphrase, kept for repeated
+ * use by a long-running signer such as Service or Daemon. A handle holds
+ * what depends only on the key:
+ *
+ *   the scalar s, in a direct buffer outside the Java heap that close
+ *      overwrites with zeros;
+ *   the KMAC prefix keyed with s under "N", from which each signature's
+ *      nonce is computed;
+ *   the public point V = s * G, and its multiples for EC.Point.multAdd,
+ *      computed together on first use and shared with verifiers of V
+ *      through a lock-free map until the handle is evicted.
+ *
+ * Handles are cached by a KMAC digest of the passphrase, never by the
+ * passphrase itself. An operation pins its handle with acquire and
+ * unpins it with release; a handle is closed once it has been unpinned
+ * and unused for IDLE_NANOS, never while pinned. The BigInteger copies
+ * of s that an operation works with are ordinary heap objects; they
+ * live only as long as that operation and cannot be zeroed.
+ */
+final class KeyHandle implements AutoCloseable
+{
+    /**
+     * System property giving the idle time, in seconds, after which a
+     * cached handle is closed. The default is 300.
+     */
+    static final String IDLE_PROPERTY = "keys.idle";
+    /**
+     * The idle time after which a cached handle is closed.
+     */
+    static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong(IDLE_PROPERTY, 300));
+
+    /**
+     * Open handles by the digest of their passphrase.
+     */
+    private static final Map<ByteBuffer, KeyHandle> CACHE = new HashMap<>();
+    /**
+     * The multiples of the public keys of the cached handles that have
+     * computed them, by the encoding of the key. Verifiers read it
+     * without taking the CACHE lock.
+     */
+    private static final Map<ByteBuffer, EC.Projective[]> MULTIPLES = new ConcurrentHashMap<>();
+    /**
+     * Closes idle handles; started with the first cached handle.
+     */
+    private static ScheduledExecutorService evictor;
+
+    /**
+     * The scalar s, big-endian in Container.PRIVATE_BYTES bytes.
+     */
+    private final ByteBuffer secret = ByteBuffer.allocateDirect(Container.PRIVATE_BYTES);
+    /**
+     * KMAC keyed with s under "N", not yet given any input.
+     */
+    private final DF.KMAC nonce;
+    /**
+     * V = s * G, or null until first needed.
+     */
+    private volatile EC.Point V;
+    /**
+     * The multiples of V, or null until first needed.
+     */
+    private volatile EC.Projective[] multiples;
+    /**
+     * System.nanoTime() when the handle was last acquired or released.
+     */
+    private volatile long used;
+    /**
+     * The number of operations holding the handle, guarded by CACHE.
+     */
+    private int pins;
+    /**
+     * True once the key material has been zeroed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs a handle holding a private key.
+     *
+     * @param s the private key.
+     */
+    KeyHandle(BigInteger s)
+    {
+        byte[] S = Container.toBytes(s, Container.PRIVATE_BYTES);
+
+        secret.put(0, S);
+        nonce = new DF.KMAC(S, Main.utf8("N"));
+        Arrays.fill(S, (byte) 0);
+        used = System.nanoTime();
+    }
+
+    /**
+     * The cached handle of a passphrase, derived and cached if there is
+     * none, pinned so that it is not evicted until released. The handle
+     * belongs to the cache and must not be closed by the caller.
+     *
+     * @param pw the passphrase.
+     * @return the handle for s = 4 * KMACXOF256(pw, "", 512, "SK"); the
+     *          caller must release it.
+     */
+    static KeyHandle acquire(String pw)
+    {
+        ByteBuffer id = ByteBuffer.wrap(Main.kmac(pw, new byte[0], 32, "KH"));
+
+        synchronized (CACHE)
+        {
+            KeyHandle k = CACHE.get(id);
+
+            if (k == null)
+            {
+                k = new KeyHandle(Main.privateKey(pw));
+                CACHE.put(id, k);
+
+                if (evictor == null)    evictor = startEvictor();
+            }
+
+            k.pins++;
+            k.used = System.nanoTime();
+            return k;
+        }
+    }
+
+    /**
+     * Unpins a handle returned by acquire. Its idle time starts now if
+     * no other operation holds it.
+     */
+    void release()
+    {
+        synchronized (CACHE)
+        {
+            if (pins == 0)  throw new IllegalStateException("Key handle is not acquired.");
+
+            pins--;
+            used = System.nanoTime();
+        }
+    }
+
+    /**
+     * The private key.
+     *
+     * @return s.
+     * @throws IllegalStateException if the handle is closed.
+     */
+    synchronized BigInteger scalar()
+    {
+        check();
+
+        byte[] S = new byte[Container.PRIVATE_BYTES];
+
+        secret.get(0, S);
+
+        try
+        {
+            return new BigInteger(1, S);
+        }
+        finally
+        {
+            Arrays.fill(S, (byte) 0);
+        }
+    }
+
+    /**
+     * A fresh KMAC computation keyed with s under "N", ready for the
+     * message whose signature nonce it computes.
+     *
+     * @return the computation.
+     * @throws IllegalStateException if the handle is closed.
+     */
+    synchronized DF.KMAC nonce()
+    {
+        check();
+
+        return nonce.copy();
+    }
+
+    /**
+     * The public key, computed on first use together with its multiples,
+     * which are then published for KeyHandle.multiples(P).
+     *
+     * @return V = s * G.
+     * @throws IllegalStateException if the handle is closed before V is computed.
+     */
+    EC.Point publicKey()
+    {
+        EC.Point P = V;
+
+        if (P == null)
+        {
+            P = EC.G.mult(scalar(), true);
+
+            EC.Projective[] W = P.multiples();
+
+            synchronized (this)
+            {
+                check();                            // Evicted meanwhile: publish nothing
+                MULTIPLES.put(ByteBuffer.wrap(P.encode()), W);
+                multiples = W;
+                V = P;
+            }
+        }
+
+        return P;
+    }
+
+    /**
+     * The multiples of the public key for EC.Point.multAdd, computed on
+     * first use. They are shared and only read.
+     *
+     * @return the multiples of V.
+     */
+    EC.Projective[] multiples()
+    {
+        publicKey();
+
+        return multiples;
+    }
+
+    /**
+     * The multiples of a public key for EC.Point.multAdd: those kept by a
+     * cached handle of that key, or else computed now. No lock is taken.
+     *
+     * @param P the public key.
+     * @return the multiples of P.
+     */
+    static EC.Projective[] multiples(EC.Point P)
+    {
+        EC.Projective[] W = MULTIPLES.get(ByteBuffer.wrap(P.encode()));
+
+        return W != null ? W : P.multiples();
+    }
+
+    /**
+     * Zeroes the private key and the keyed nonce prefix. The public key
+     * stays readable if it was computed.
+     */
+    public synchronized void close()
+    {
+        if (closed)     return;
+
+        for (int i = 0; i < secret.capacity(); i++)   secret.put(i, (byte) 0);
+        nonce.clear();
+        closed = true;
+    }
+
+    /**
+     * Closes and drops the cached handles unpinned and unused since
+     * IDLE_NANOS before a given time.
+     *
+     * @param now the time, from System.nanoTime().
+     * @return the number of handles closed.
+     */
+    static int evict(long now)
+    {
+        return evict(now, IDLE_NANOS);
+    }
+
+    /**
+     * Closes and drops the cached handles unpinned and unused for a
+     * given idle time.
+     *
+     * @param now the time, from System.nanoTime().
+     * @param idle the idle time, in nanoseconds.
+     * @return the number of handles closed.
+     */
+    static int evict(long now, long idle)
+    {
+        List<KeyHandle> evicted = new ArrayList<>();
+
+        synchronized (CACHE)
+        {
+            for (Iterator<KeyHandle> it = CACHE.values().iterator(); it.hasNext(); )
+            {
+                KeyHandle k = it.next();
+
+                if (k.pins == 0 && now - k.used >= idle)
+                {
+                    it.remove();
+                    k.close();
+                    evicted.add(k);
+                }
+            }
+        }
+
+        for (KeyHandle k : evicted)
+            if (k.V != null)    MULTIPLES.remove(ByteBuffer.wrap(k.V.encode()), k.multiples);
+
+        return evicted.size();
+    }
+
+    /**
+     * The number of cached handles.
+     *
+     * @return the number of open handles in the cache.
+     */
+    static int cached()
+    {
+        synchronized (CACHE)
+        {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Throws if the key material has been zeroed.
+     *
+     * @throws IllegalStateException if the handle is closed.
+     */
+    private void check()
+    {
+        if (closed)     throw new IllegalStateException("Key handle is closed.");
+    }
+
+    /**
+     * Starts the daemon thread that evicts idle handles, checking four
+     * times per idle period.
+     *
+     * @return the evictor.
+     */
+    private static ScheduledExecutorService startEvictor()
+    {
+        ScheduledExecutorService e = Executors.newSingleThreadScheduledExecutor(task ->
+        {
+            Thread t = new Thread(task, "key-evictor");
+
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(IDLE_NANOS / 4, TimeUnit.MILLISECONDS.toNanos(1));
+
+        e.scheduleAtFixedRate(() -> evict(System.nanoTime()), period, period, TimeUnit.NANOSECONDS);
+
+        return e;
+    }
+}
@@ -9,17 +9,75 @@
 
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.stream.IntStream;
 
 public class Main {
 
+    /**
+     * Size of the file windows mapped into memory while hashing.
+     */
+    static final long MAP_WINDOW = 1L << 26;
+
+    /**
+     * The directory relative file names are resolved against, for a
+     * command run by command(args, dir, root, out) on this thread.
+     */
+    private static final ThreadLocal<Path> DIRECTORY = new ThreadLocal<>();
+    /**
+     * The real path of the directory every file of a command run by
+     * command(args, dir, root, out) on this thread must lie in, or null
+     * if there is none.
+     */
+    private static final ThreadLocal<Path> ROOT = new ThreadLocal<>();
+    /**
+     * Where the messages of a command run by command(args, dir, root,
+     * out) on this thread go.
+     */
+    private static final ThreadLocal<PrintStream> OUT = new ThreadLocal<>();
+
+    /**
+     * Size of the blocks symmetric encryption streams through.
+     */
+    static final int BLOCK = Container.BUFFER;
+
     /**
      * Entry point for the application.
+     * DAEMON socket [root] serves the other commands over a Unix-domain
+     * socket, on files under root or the working directory; see Daemon.
      */
     public static void main(String[] args) throws IOException
+    {
+        if (args[0].equals("DAEMON")) Daemon.serve(args[1], args.length > 2 ? args[2] : ".");
+        else command(args);
+    }
+
+    /**
+     * Runs one command.
+     * @param args the command and its arguments.
+     * @throws IOException if a file cannot be read or written.
+     */
+    static void command(String[] args) throws IOException
     {
         String op;              // The operation to perform
 
@@ -32,13 +90,97 @@ public class Main {
             case "DECRYPT" -> decrypt(args[1]);
             case "KEY" -> keyPair(args[1]);
             case "ECENCRYPT" -> ec_encrypt(args[1], args[2]);
+            case "ECENCRYPTBATCH" -> ec_encryptBatch(args[1], Arrays.copyOfRange(args, 2, args.length));
             case "ECDECRYPT" -> ec_decrypt(args[1], args[2]);
             case "SIGN" -> sign(args[1], args[2]);
             case "VERIFY" -> verify(args[1], args[2], args[3]);
-            default -> System.out.println("Unknown command.");
+            case "VERIFYBATCH" -> verifyBatch(args[1]);
+            default -> out().println("Unknown command.");
         }
     }
 
+    /**
+     * Runs one command on this thread as if from another working
+     * directory, with its messages going to the given stream instead
+     * of System.out.
+     * @param args the command and its arguments.
+     * @param dir the directory relative file names are resolved against.
+     * @param root the real path of the directory every file the command
+     *          reads or writes must lie in, or null for no limit.
+     * @param out where the command's messages go.
+     * @throws IOException if a file cannot be read or written, or lies
+     *          outside root.
+     */
+    static void command(String[] args, Path dir, Path root, PrintStream out) throws IOException
+    {
+        DIRECTORY.set(dir);
+        ROOT.set(root);
+        OUT.set(out);
+
+        try
+        {
+            command(args);
+        }
+        finally
+        {
+            DIRECTORY.remove();
+            ROOT.remove();
+            OUT.remove();
+        }
+    }
+
+    /**
+     * Resolves a file name against the directory of the command running
+     * on this thread.
+     * @param fileName the file name.
+     * @return the path.
+     * @throws AccessDeniedException if the command has a root and the
+     *          file lies outside it.
+     * @throws IOException if the file's real path cannot be read.
+     */
+    static Path path(String fileName) throws IOException
+    {
+        Path dir = DIRECTORY.get(), root = ROOT.get();
+        Path p = dir == null ? Paths.get(fileName) : dir.resolve(fileName);
+
+        if (root != null && !within(p, root))
+            throw new AccessDeniedException(fileName, null, "Outside " + root + ".");
+
+        return p;
+    }
+
+    /**
+     * Tells whether a path lies in a directory, both as written and once
+     * the symbolic links along the part of it that exists are followed.
+     * @param p the path.
+     * @param root the real path of the directory.
+     * @return true IFF p lies in root.
+     * @throws IOException if a real path cannot be read, as for a
+     *          dangling link.
+     */
+    static boolean within(Path p, Path root) throws IOException
+    {
+        Path q = p.toAbsolutePath().normalize();
+
+        if (!q.startsWith(root))    return false;
+
+        for (Path e = q; e != null; e = e.getParent())
+            if (Files.exists(e, LinkOption.NOFOLLOW_LINKS)) return e.toRealPath().startsWith(root);
+
+        return false;
+    }
+
+    /**
+     * The stream the messages of the command running on this thread go to.
+     * @return the stream.
+     */
+    static PrintStream out()
+    {
+        PrintStream out = OUT.get();
+
+        return out == null ? System.out : out;
+    }
+
     /**
      * Computes an authentication tag.
      * If txt = "-u", user will be prompted for the message.
@@ -48,19 +190,33 @@ public class Main {
      */
     public static void aTag(String pw, String txt) throws IOException
     {
-        String m;
+        DF.KMAC mac = DF.KMAC.cached(utf8(pw), utf8("T"));       // Repeated tags under pw reuse its prefix
 
         if (txt.equals("-u"))
         {
             Scanner scan = new Scanner(System.in);
-            System.out.print("Enter message: ");
-            m = scan.nextLine();
+            out().print("Enter message: ");
+            byte[] m = scan.nextLine().getBytes(StandardCharsets.UTF_8);
+            mac.update(m, 0, m.length);
         }
-        else m = new String(readFile(txt));
+        else hashFile(txt, mac);
+
+        out().println("t: " + byteArrayToHexString(mac.squeeze(64)));
+        mac.clear();
+    }
 
-        String t = DF.KMACXOF256(pw, m, 512, "T");
+    /**
+     * Converts a byte array to a hexadecimal string.
+     * @param byteArray the array to be converted
+     * @return the string output
+     */
+    public static String byteArrayToHexString(byte[] byteArray)
+    {
+        StringBuilder sb = new StringBuilder(2 * byteArray.length);
 
-        System.out.println("t: " + t);
+        for (byte b : byteArray) sb.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+
+        return sb.toString();
     }
 
     /**
@@ -80,58 +236,93 @@ public class Main {
         return binaryStringBuilder.toString();
     }
 
+    /**
+     * Decrypts ./cryptogram.txt under a given passphrase and writes the
+     * decrypted data to originalMessage.txt through publish, streaming
+     * both files, so unauthenticated bytes are never published.
+     * @param pw the passphrase
+     * @throws IOException if the cryptogram cannot be read
+     */
     public static void decrypt(String pw) throws IOException
     {
-        String content;
-        String[] zct;
-        String z;
-        String c, t, tprime, m;
-        String keka, ke, ka;
-        String fileName = "./cryptogram.txt";
+        boolean ok;
+
+        try (Container.Reader in = Container.Reader.open(path("./cryptogram.txt"), Container.CRYPTOGRAM))
+        {
+            ok = publish("./originalMessage.txt", out -> readCryptogram(in, pw, out));
+        }
+
+        if (ok) out().println("File successfully decrypted: originalMessage.txt");
+        else out().println("t' does not equal t. File decryption unsuccessful: originalMessage.txt was not written.");
+    }
+
+    /**
+     * Writes the contents of a file that must appear whole or not at
+     * all.
+     */
+    interface Output
+    {
+        /**
+         * Writes the contents.
+         *
+         * @param out the channel the contents are written to.
+         * @return true IFF the contents are to be published.
+         * @throws IOException if the contents cannot be read or written.
+         */
+        boolean write(FileChannel out) throws IOException;
+    }
 
-        content = new String(readFile(fileName));
+    /**
+     * Writes a file through a temporary file in the same directory,
+     * which is renamed onto the file only if the writer accepts what it
+     * wrote and deleted otherwise. Readers of the file see either its
+     * earlier contents or all of the new ones.
+     * @param fileName the file.
+     * @param output writes the contents.
+     * @return true IFF the file was replaced.
+     * @throws IOException if the file cannot be written.
+     */
+    static boolean publish(String fileName, Output output) throws IOException
+    {
+        Path target = path(fileName).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
 
-        zct = content.split("\n");
-        z = zct[0];
-        c = zct[1];
-        t = zct[2];
+        try
+        {
+            boolean ok;
 
-        keka = DF.KMACXOF256(z.concat(pw), "", 1024, "S");
-        ke = keka.substring(0, keka.length() / 2);
-        ka = keka.substring(keka.length() / 2);
-        m = IF.xorStrings(DF.KMACXOF256(ke, "", c.length(), "SKE"), c);
-        tprime = DF.KMACXOF256(ka, m, 512, "SKA");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE))
+            {
+                ok = output.write(out);
+            }
 
-        writeFile("./originalMessage.txt", m);
+            if (ok) Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
 
-        if (t.equals(tprime)) System.out.println("File successfully decrypted: originalMessage.txt");
-        else System.out.println("t' does not equal t. File decryption complete.");
+            return ok;
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);             // Only still there if not moved
+        }
     }
 
     /**
-     * Encrypts a data file symmetrically under a given passphrase.
+     * Encrypts a data file symmetrically under a given passphrase. The
+     * file is streamed through in blocks, so memory use does not grow
+     * with its size.
      * @param pw the passphrase
      * @param fileName the file name to be read
      * @throws IOException if file does not exist
      */
     public static void encrypt(String pw, String fileName) throws IOException
     {
-        String z;               // Random binary string
-        String keka, ke, ka;
-        String t;
-        String c;
-        String m = new String(readFile(fileName));
-
-        z = random(512);
-        keka = DF.KMACXOF256(z.concat(pw), "", 1024, "S");
-        ke = keka.substring(0, keka.length() / 2);
-        ka = keka.substring(keka.length() / 2);
-        c = IF.xorStrings(DF.KMACXOF256(ke, "", m.length(), "SKE"), m);
-        t = DF.KMACXOF256(ka, m, 512, "SKA");
-
-        writeFile("./cryptogram.txt", z + "\n" + c + "\n" + t);
+        try (FileChannel in = FileChannel.open(path(fileName), StandardOpenOption.READ);
+             Container.Writer out = Container.Writer.create(path("./cryptogram.txt"), Container.CRYPTOGRAM))
+        {
+            writeCryptogram(out, pw, in, in.size());
+        }
 
-        System.out.println("File encrypted: cryptogram.txt");
+        out().println("File encrypted: cryptogram.txt");
     }
 
     /**
@@ -139,28 +330,155 @@ public class Main {
      *
      * @param pw the passphrase the key is encrypted under.
      * @param key the private key to be encrypted.
-     * @return the cryptogram (z, c, t)
+     * @param out the PRIVATE_KEY container the cryptogram (z, c, t) is
+     *          written to.
+     * @throws IOException if the container cannot be written.
      */
-    public static String encryptKey(String pw, BigInteger key)
+    public static void encryptKey(String pw, BigInteger key, Container.Writer out) throws IOException
     {
-        String z;               // Random binary string
-        String keka, ke, ka;
-        String t;
-        String c;
+        byte[] m = Container.toBytes(key, Container.PRIVATE_BYTES);
+
+        writeCryptogram(out, pw, Channels.newChannel(new ByteArrayInputStream(m)), m.length);
+    }
 
-        z = random(512);
-        keka = DF.KMACXOF256(z.concat(pw), "", 1024, "S");
-        ke = keka.substring(0, keka.length() / 2);
-        ka = keka.substring(keka.length() / 2);
-        c = IF.xorStrings(DF.KMACXOF256(ke, "", key.bitLength(), "SKE"), key.toString(2));
-        t = DF.KMACXOF256(ka, key.toString(2), 512, "SKA");
+    /**
+     * Encrypts len bytes from a channel symmetrically under a passphrase
+     * and writes the cryptogram fields z, length, c and t to a container.
+     * The input is read in blocks of BLOCK bytes. For each block the next
+     * bytes of the SKE keystream are squeezed and XORed in, and the block
+     * is absorbed into the SKA tag, so the cryptogram is the same as if
+     * the whole input had been encrypted at once.
+     *
+     * @param out the container.
+     * @param pw the passphrase.
+     * @param in the bytes to be encrypted.
+     * @param len the number of bytes to encrypt.
+     * @throws IOException if the input ends early or the container cannot
+     *          be written.
+     */
+    static void writeCryptogram(Container.Writer out, String pw, ReadableByteChannel in, long len) throws IOException
+    {
+        byte[] z = randomBytes(Container.NONCE_BYTES);      // Random nonce
+        DF.KMAC[] keys = symmetricKeys(z, pw);
+        byte[] m = new byte[BLOCK], c = new byte[BLOCK];
+        ByteBuffer B = ByteBuffer.wrap(m);
+
+        out.put(z).putLong(len);
+
+        for (long done = 0; done < len; done += B.position())
+        {
+            B.clear().limit((int) Math.min(BLOCK, len - done));
+            while (B.hasRemaining())
+                if (in.read(B) < 0) throw new EOFException("Input ended after " + (done + B.position()) + " of " + len + " bytes.");
 
-        return z + "\n" + c + "\n" + t;
+            int n = B.position();
+
+            keys[0].squeeze(c, 0, n);
+            for (int i = 0; i < n; i++) c[i] ^= m[i];
+            keys[1].update(m, 0, n);
+            out.put(c, 0, n);
+        }
+
+        out.put(keys[1].squeeze(Container.TAG_BYTES));
+    }
+
+    /**
+     * Decrypts the cryptogram fields z, length, c and t from a container
+     * under a passphrase, writing the decrypted bytes to a channel block
+     * by block. The bytes are written before the tag is checked, so the
+     * caller must not use them unless this returns true.
+     *
+     * @param in the container, positioned at z.
+     * @param pw the passphrase.
+     * @param out where the decrypted bytes are written.
+     * @return true IFF the tag t is correct.
+     * @throws IOException if the container cannot be read or the output
+     *          cannot be written.
+     */
+    static boolean readCryptogram(Container.Reader in, String pw, WritableByteChannel out) throws IOException
+    {
+        DF.KMAC[] keys = symmetricKeys(in.get(Container.NONCE_BYTES), pw);
+        long len = in.getLong();
+        byte[] c = new byte[BLOCK], k = new byte[BLOCK];
+
+        for (long done = 0; done < len; )
+        {
+            int n = (int) Math.min(BLOCK, len - done);
+
+            in.get(c, 0, n);
+            keys[0].squeeze(k, 0, n);
+            for (int i = 0; i < n; i++) c[i] ^= k[i];
+            keys[1].update(c, 0, n);
+
+            ByteBuffer B = ByteBuffer.wrap(c, 0, n);
+
+            while (B.hasRemaining())    out.write(B);
+            done += n;
+        }
+
+        return MessageDigest.isEqual(in.get(Container.TAG_BYTES), keys[1].squeeze(Container.TAG_BYTES));
+    }
+
+    /**
+     * Derives the keys of a symmetric cryptogram:
+     * (ke || ka) = KMACXOF256(z || pw, "", 1024, "S").
+     *
+     * @param z the cryptogram's nonce.
+     * @param pw the passphrase.
+     * @return the SKE keystream computation under ke and the SKA tag
+     *          computation under ka.
+     */
+    static DF.KMAC[] symmetricKeys(byte[] z, String pw)
+    {
+        byte[] keka = kmac(concat(z, utf8(pw)), new byte[0], 128, "S");
+
+        return new DF.KMAC[] {
+                new DF.KMAC(Arrays.copyOfRange(keka, 0, 64), utf8("SKE")),
+                new DF.KMAC(Arrays.copyOfRange(keka, 64, 128), utf8("SKA"))};
+    }
+
+    /**
+     * Reads a length-prefixed ciphertext from a container. The length is
+     * not trusted: from a file it must leave room for the tag that
+     * follows, and from any other channel the bytes are read in blocks of
+     * BLOCK, so memory grows only with what actually arrives.
+     *
+     * @param in the container.
+     * @return the ciphertext.
+     * @throws IOException if the container cannot be read, its length is
+     *          more than the container holds, or the ciphertext is too
+     *          large to hold in memory.
+     */
+    static byte[] ciphertext(Container.Reader in) throws IOException
+    {
+        long len = in.getLong();
+        long left = in.remaining();
+
+        if (len > Integer.MAX_VALUE - 8)    throw new IOException("Ciphertext of " + len + " bytes is too large.");
+        if (left >= 0 && len > left - Container.TAG_BYTES)
+            throw new IOException("Ciphertext of " + len + " bytes is longer than the container.");
+        if (left >= 0)                      return in.get((int) len);
+
+        byte[] c = new byte[(int) Math.min(len, BLOCK)];
+
+        for (int done = 0; done < len; )
+        {
+            if (done == c.length)   c = Arrays.copyOf(c, (int) Math.min(len, 2L * c.length));
+
+            int n = c.length - done;
+
+            in.get(c, done, n);
+            done += n;
+        }
+
+        return c;
     }
 
     /**
      * Decrypts a given elliptic-encrypted file from a given passphrase and
-     * writes the decrypted data to a file.
+     * writes the decrypted data to originalMessage-ec.txt. The tag is
+     * checked first, and the file is written through publish only if it
+     * is correct.
      *
      * @param pw the passphrase.
      * @param fileName the elliptic cryptogram.
@@ -168,34 +486,49 @@ public class Main {
      */
     public static void ec_decrypt(String pw, String fileName) throws IOException
     {
-        String[] content;
         EC.Point Z, W;
-        String c, t, tprime, m;
-        String keka, ke, ka;
-        BigInteger s;
+        byte[] c, t, tprime, m;
+        byte[] keka, ke, ka;
 
-        content = new String(readFile(fileName)).split("\n");
+        try (Container.Reader in = Container.Reader.open(path(fileName), Container.EC_CRYPTOGRAM))
+        {
+            Z = in.getPoint();
+            c = ciphertext(in);
+            t = in.get(Container.TAG_BYTES);
+        }
 
-        Z = new EC.Point(new BigInteger(content[0], 2), new BigInteger(content[1], 2));
-        c = content[2];
-        t = content[3];
+        KeyHandle key = KeyHandle.acquire(pw);
 
-        s = new BigInteger(DF.KMACXOF256(pw, "", 512, "SK"), 2);
-        s = new BigInteger("4").multiply(s);
+        try
+        {
+            W = Z.mult(key.scalar(), true);
+        }
+        finally
+        {
+            key.release();
+        }
 
-        W = Z.mult(s);
+        keka = kmac(W.encode(), new byte[0], 128, "PK");
+        ke = Arrays.copyOfRange(keka, 0, 64);
+        ka = Arrays.copyOfRange(keka, 64, 128);
 
-        keka = DF.KMACXOF256(W.x.toString(2), "", 1024, "PK");
-        ke = keka.substring(0, keka.length() / 2);
-        ka = keka.substring(keka.length() / 2);
+        m = IF.xorBytes(kmac(ke, new byte[0], c.length, "PKE"), c);
+        tprime = kmac(ka, m, Container.TAG_BYTES, "PKA");
 
-        m = IF.xorStrings(DF.KMACXOF256(ke, "", c.length(), "PKE"), c);
-        tprime = DF.KMACXOF256(ka, m, 512, "PKA");
+        if (!MessageDigest.isEqual(t, tprime))
+        {
+            out().println("t' does not equal t. File decryption unsuccessful: originalMessage-ec.txt was not written.");
+            return;
+        }
 
-        writeFile("./originalMessage-ec.txt", m);
+        publish("./originalMessage-ec.txt", out ->
+        {
+            ByteBuffer B = ByteBuffer.wrap(m);
 
-        if (t.equals(tprime)) System.out.println("File successfully decrypted: originalMessage-ec.txt");
-        else System.out.println("t' does not equal t. File decryption unsuccessful: originalMessage-ec.txt");
+            while (B.hasRemaining())    out.write(B);
+            return true;
+        });
+        out().println("File successfully decrypted: originalMessage-ec.txt");
     }
 
     /**
@@ -210,50 +543,103 @@ public class Main {
      */
     public static void ec_encrypt(String keyFile, String txt) throws IOException
     {
-        EC.Point W;
-        EC.Point Z;
         EC.Point V;
-        BigInteger k;
-        String c;
-        String t;
-        String m;
-        String keka, ke, ka;
+        byte[] m;
 
         if (txt.equals("-u"))
         {
             Scanner scan = new Scanner(System.in);
-            System.out.print("Enter message: ");
-            m = scan.nextLine();
+            out().print("Enter message: ");
+            m = utf8(scan.nextLine());
         }
-        else m = new String(readFile(txt));
+        else m = readFile(txt);
 
         V = EC.O;
 
         try{
-            Scanner scan = new Scanner(new File(keyFile));
-            V = new EC.Point(new BigInteger(scan.nextLine(), 2), new BigInteger(scan.nextLine(), 2));
-        } catch (FileNotFoundException e)
+            V = readPublicKey(keyFile);
+        } catch (NoSuchFileException e)
         {
-            System.out.println("Public key file not found.");
-            System.exit(0);
+            out().println("Public key file not found.");
+            return;
         }
 
-        k = new BigInteger(random(512), 2);
-        k = new BigInteger("4").multiply(k);
+        ecCryptograms(V, List.of(m), List.of("./ec-cryptogram.txt"));
+
+        out().println("Message encrypted: ec-cryptogram.txt");
+    }
+
+    /**
+     * Encrypts each of the given files under a given elliptic public key
+     * file. The cryptogram of file f is written to f.ec-cryptogram.txt.
+     *
+     * @param keyFile file where the elliptic public key is found.
+     * @param files the files to be encrypted.
+     * @throws IOException if the public key file or a file cannot be found.
+     */
+    public static void ec_encryptBatch(String keyFile, String... files) throws IOException
+    {
+        List<byte[]> messages = new ArrayList<>();
+        List<String> cryptograms = new ArrayList<>();
+
+        for (String f : files)
+        {
+            messages.add(readFile(f));
+            cryptograms.add(f + ".ec-cryptogram.txt");
+        }
+
+        ecCryptograms(readPublicKey(keyFile), messages, cryptograms);
+
+        for (String f : cryptograms)    out().println("Message encrypted: " + f);
+    }
+
+    /**
+     * Encrypts messages under an elliptic public key and writes each
+     * cryptogram (Z, length, c, t) to an EC_CRYPTOGRAM container. Each
+     * message gets a fresh k, with W = k * V and Z = k * G. All the W and
+     * Z points are brought to affine coordinates together, sharing one
+     * inversion.
+     *
+     * @param V the public key.
+     * @param messages the messages.
+     * @param files the cryptogram file of each message.
+     * @throws IOException if a cryptogram cannot be written.
+     */
+    static void ecCryptograms(EC.Point V, List<byte[]> messages, List<String> files) throws IOException
+    {
+        int n = messages.size();
+        EC.Projective[] P = new EC.Projective[2 * n];
+        EC.Point[] A;
+
+        for (int i = 0; i < n; i++)
+        {
+            BigInteger k = new BigInteger(1, randomBytes(64));
+            k = new BigInteger("4").multiply(k);
 
-        W = V.mult(k);
-        Z = EC.G.mult(k);
+            P[2 * i] = V.multProjective(k, true);           // W
+            P[2 * i + 1] = EC.G.multProjective(k, true);    // Z
+        }
+
+        A = EC.toAffine(P);
 
-        keka = DF.KMACXOF256(W.x.toString(2), "", 1024, "PK");
-        ke = keka.substring(0, keka.length() / 2);
-        ka = keka.substring(keka.length() / 2);
+        for (int i = 0; i < n; i++)
+        {
+            byte[] m = messages.get(i);
+            EC.Point W = A[2 * i];
+            EC.Point Z = A[2 * i + 1];
+            byte[] keka, ke, ka, c;
 
-        c = IF.xorStrings(DF.KMACXOF256(ke, "", m.length(), "PKE"), m);
-        t = DF.KMACXOF256(ka, m, 512, "PKA");
+            keka = kmac(W.encode(), new byte[0], 128, "PK");
+            ke = Arrays.copyOfRange(keka, 0, 64);
+            ka = Arrays.copyOfRange(keka, 64, 128);
 
-        writeFile("./ec-cryptogram.txt", Z.x.toString(2) + "\n" + Z.y.toString(2) + "\n" + c + "\n" + t);
+            c = IF.xorBytes(kmac(ke, new byte[0], m.length, "PKE"), m);
 
-        System.out.println("Message encrypted: ec-cryptogram.txt");
+            try (Container.Writer out = Container.Writer.create(path(files.get(i)), Container.EC_CRYPTOGRAM))
+            {
+                out.putPoint(Z).putLong(c.length).put(c).put(kmac(ka, m, Container.TAG_BYTES, "PKA"));
+            }
+        }
     }
 
     /**
@@ -261,22 +647,115 @@ public class Main {
      * Writes the public and private keys, each to their own file.
      *
      * @param pw the passphrase
+     * @throws IOException if a key file cannot be written.
      */
-    public static void keyPair(String pw)
+    public static void keyPair(String pw) throws IOException
     {
+        KeyHandle key = KeyHandle.acquire(pw);
         BigInteger s;           // Private Key
         EC.Point V;             // Public Key
 
-        s = new BigInteger(DF.KMACXOF256(pw, "", 512, "SK"), 2);
-        s = new BigInteger("4").multiply(s);
+        try
+        {
+            s = key.scalar();
+            V = key.publicKey();
+        }
+        finally
+        {
+            key.release();
+        }
 
-        V = EC.G.mult(s);
+        try (Container.Writer out = Container.Writer.create(path("./public.key"), Container.PUBLIC_KEY))
+        {
+            out.putPoint(V);
+        }
+        out().println("Public key generated: public.key");
 
-        writeFile("./public.key", V.x.toString(2) + "\n" + V.y.toString(2));
-        System.out.println("Public key generated: public.key");
+        try (Container.Writer out = Container.Writer.create(path("./private.key"), Container.PRIVATE_KEY))
+        {
+            encryptKey(pw, s, out);
+        }
+        out().println("Private key encrypted: private.key");
+    }
 
-        writeFile("./private.key", encryptKey(pw, s));
-        System.out.println("Private key encrypted: private.key");
+    /**
+     * Derives the elliptic private key s = 4 * KMACXOF256(pw, "", 512, "SK")
+     * from a passphrase.
+     *
+     * @param pw the passphrase.
+     * @return the private key.
+     */
+    static BigInteger privateKey(String pw)
+    {
+        return new BigInteger("4").multiply(new BigInteger(1, kmac(pw, new byte[0], 64, "SK")));
+    }
+
+    /**
+     * KMACXOF256 over bytes under a key used once, such as a random
+     * nonce or a derived ke or ka, so the keyed prefix is not kept in
+     * the DF.KMAC.cached table.
+     *
+     * @param K the key.
+     * @param X the main input.
+     * @param L the output length in bytes.
+     * @param S the customization string.
+     * @return L bytes of output.
+     */
+    static byte[] kmac(byte[] K, byte[] X, int L, String S)
+    {
+        return new DF.KMAC(K, utf8(S)).update(X, 0, X.length).squeeze(L);
+    }
+
+    /**
+     * KMACXOF256 over bytes under a passphrase. A passphrase is used
+     * again and again, so its keyed prefix is taken from the
+     * DF.KMAC.cached table, which zeroes it on eviction.
+     *
+     * @param pw the passphrase.
+     * @param X the main input.
+     * @param L the output length in bytes.
+     * @param S the customization string.
+     * @return L bytes of output.
+     */
+    static byte[] kmac(String pw, byte[] X, int L, String S)
+    {
+        DF.KMAC mac = DF.KMAC.cached(utf8(pw), utf8(S));
+
+        try
+        {
+            return mac.update(X, 0, X.length).squeeze(L);
+        }
+        finally
+        {
+            mac.clear();
+        }
+    }
+
+    /**
+     * Encodes a passphrase, message or customization string as UTF-8.
+     *
+     * @param s the string.
+     * @return its UTF-8 bytes.
+     */
+    static byte[] utf8(String s)
+    {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Concatenates two byte arrays.
+     *
+     * @param a the first array.
+     * @param b the second array.
+     * @return a || b.
+     */
+    static byte[] concat(byte[] a, byte[] b)
+    {
+        byte[] ab = Arrays.copyOf(a, a.length + b.length);
+
+        System.arraycopy(b, 0, ab, a.length, b.length);
+
+        return ab;
     }
 
     /**
@@ -287,19 +766,54 @@ public class Main {
      */
     public static void plainHash(String txt) throws IOException
     {
-        String h, m;
+        DF.KMAC mac = DF.KMAC.cached(new byte[0], "D".getBytes(StandardCharsets.UTF_8));
 
         if (txt.equals("-u"))
         {
             Scanner scan = new Scanner(System.in);
-            System.out.print("Enter message: ");
-            m = scan.nextLine();
+            out().print("Enter message: ");
+            byte[] m = scan.nextLine().getBytes(StandardCharsets.UTF_8);
+            mac.update(m, 0, m.length);
         }
-        else m = new String(readFile(txt));
+        else hashFile(txt, mac);
+
+        out().println("h: " + byteArrayToHexString(mac.squeeze(64)));
+    }
+
+    /**
+     * Feeds the raw bytes of a file into a KMAC computation.
+     * The file is mapped into memory MAP_WINDOW bytes at a time and
+     * each window is absorbed directly, without copying it onto the heap.
+     * @param fileName name of the file to be hashed.
+     * @param mac the computation the file is absorbed into.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void hashFile(String fileName, DF.KMAC mac) throws IOException
+    {
+        hashFile(fileName, mac, MAP_WINDOW);
+    }
+
+    /**
+     * Feeds the raw bytes of a file into a KMAC computation, mapping
+     * windows of a given size.
+     * @param fileName name of the file to be hashed.
+     * @param mac the computation the file is absorbed into.
+     * @param windowSize the number of bytes mapped at a time.
+     * @throws IOException if the file cannot be read.
+     */
+    static void hashFile(String fileName, DF.KMAC mac, long windowSize) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path(fileName), StandardOpenOption.READ))
+        {
+            long size = channel.size();
 
-        h = DF.KMACXOF256("", m, 512, "D");
+            for (long pos = 0; pos < size; pos += windowSize)
+            {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, size - pos));
 
-        System.out.println("h: " + h);
+                mac.update(window);
+            }
+        }
     }
 
     /**
@@ -314,32 +828,73 @@ public class Main {
      */
     public static void sign(String pw, String txt) throws IOException
     {
-        String h, m;
-        BigInteger s, k, z;
-        EC.Point U;
+        byte[] msg = null;
 
         if (txt.equals("-u"))
         {
             Scanner scan = new Scanner(System.in);
-            System.out.print("Enter message: ");
-            m = scan.nextLine();
+            out().print("Enter message: ");
+            msg = utf8(scan.nextLine());
+        }
+
+        KeyHandle key = KeyHandle.acquire(pw);
+
+        try (Container.Writer out = Container.Writer.create(path("./signature.txt"), Container.SIGNATURE))
+        {
+            writeSignature(out, key, msg, txt);
+        }
+        finally
+        {
+            key.release();
         }
-        else m = new String(readFile(txt));
 
-        s = new BigInteger(DF.KMACXOF256(pw, "", 512, "SK"), 2);
-        s = new BigInteger("4").multiply(s);
+        out().println("Message signed: signature.txt");
+    }
+
+    /**
+     * Signs a message under a private key and writes the signature
+     * fields h, z and U to a SIGNATURE container.
+     *
+     * @param out the container.
+     * @param key the private key, acquired by the caller.
+     * @param msg the message bytes, or null to read the message from fileName.
+     * @param fileName file where the message is found if msg is null.
+     * @throws IOException if the file cannot be read or the container
+     *          cannot be written.
+     */
+    static void writeSignature(Container.Writer out, KeyHandle key, byte[] msg, String fileName) throws IOException
+    {
+        byte[] h;
+        BigInteger k, z;
+        EC.Point U;
 
-        k = new BigInteger(DF.KMACXOF256(s.toString(2), m, 512, "N"), 2);
+        k = new BigInteger(1, absorb(key.nonce(), msg, fileName).squeeze(64));
         k = new BigInteger("4").multiply(k);
 
-        U = EC.G.mult(k);
+        U = EC.G.mult(k, true);
 
-        h = DF.KMACXOF256(U.x.toString(2), m, 512, "T");
-        z = k.subtract(new BigInteger(h).multiply(s)).mod(EC.r);
+        h = absorb(new DF.KMAC(U.encode(), utf8("T")), msg, fileName).squeeze(Container.TAG_BYTES);
+        z = k.subtract(new BigInteger(1, h).multiply(key.scalar())).mod(EC.r);
+
+        out.put(h).putScalar(z, Container.SCALAR_BYTES).putPoint(U);
+    }
 
-        writeFile("./signature.txt", h + "\n" + z.toString(2));
+    /**
+     * Absorbs a message into a KMAC computation: the given bytes, or the
+     * file when there are none.
+     *
+     * @param mac the computation.
+     * @param msg the message bytes, or null.
+     * @param fileName file where the message is found if msg is null.
+     * @return mac.
+     * @throws IOException if the file cannot be read.
+     */
+    static DF.KMAC absorb(DF.KMAC mac, byte[] msg, String fileName) throws IOException
+    {
+        if (msg != null)    mac.update(msg, 0, msg.length);
+        else hashFile(fileName, mac);
 
-        System.out.println("Message signed: signature.txt");
+        return mac;
     }
 
     /**
@@ -352,26 +907,92 @@ public class Main {
      */
     public static void verify(String keyFile, String fileName, String signature) throws IOException
     {
-        String[] sigContent, keyContent;
-        EC.Point U, V;
-        String h, hprime, m;
-        BigInteger z;
+        if (Signed.read(keyFile, fileName, signature).verify())
+            out().println("Verification complete. Signature accepted.");
+        else out().println("Verification incomplete. Signature rejected.");
+    }
 
-        m = new String(readFile(fileName));
+    /**
+     * Verifies every signature listed in a file. Each line of the list
+     * names a public key file, a message file and a signature file,
+     * separated by whitespace.
+     *
+     * @param listFile file where the list is found.
+     * @throws IOException if any of the listed files could not be found.
+     */
+    public static void verifyBatch(String listFile) throws IOException
+    {
+        List<String[]> lines = new ArrayList<>();
+        List<Signed> batch = new ArrayList<>();
 
-        sigContent = new String(readFile(signature)).split("\n");
-        h = sigContent[0];
-        z = new BigInteger(sigContent[1], 2);
+        for (String line : new String(readFile(listFile), StandardCharsets.UTF_8).split("\n"))
+        {
+            String[] f = line.trim().split("\\s+");
 
-        keyContent = new String(readFile(keyFile)).split("\n");
-        V = new EC.Point(new BigInteger(keyContent[0], 2), new BigInteger(keyContent[1], 2));
+            if (f.length < 3)   continue;
+            lines.add(f);
+            batch.add(Signed.read(f[0], f[1], f[2]));
+        }
 
-        U = EC.G.mult(z).add(V.mult(new BigInteger(h, 2)));
+        boolean[] ok = verifyBatch(batch);
 
-        hprime = DF.KMACXOF256(String.valueOf(U.x), m, 512, "T");
+        for (int i = 0; i < ok.length; i++)
+            out().println((ok[i] ? "accepted: " : "rejected: ") + String.join(" ", lines.get(i)));
+    }
+
+    /**
+     * Verifies many signatures together.
+     * First, in parallel, each signature that carries its commitment U
+     * has h checked against the hash of U and the message. The
+     * signatures that pass are then checked at once:
+     * sum of c_i * (z_i * G + h_i * V_i - U_i) == O, for random 128-bit
+     * c_i, using one multi-scalar multiplication. The sum is multiplied
+     * by the cofactor 4 first, so the check ignores points of order
+     * dividing 4, as Signed.verify does for each signature: the verdict
+     * does not depend on which path a signature takes.
+     * If the combined check fails, each of those signatures is verified
+     * on its own to find the bad ones. Signatures without U, or whose
+     * U does not hash to h, are also verified on their own.
+     *
+     * @param batch the signatures with their messages and public keys.
+     * @return for each signature, whether it is accepted.
+     */
+    public static boolean[] verifyBatch(List<Signed> batch)
+    {
+        int n = batch.size();
+        boolean[] ok = new boolean[n];
+        SecureRandom random = new SecureRandom();
+        List<Integer> combined = new ArrayList<>();
+
+        IntStream.range(0, n).parallel().forEach(i -> ok[i] = batch.get(i).committed());
+
+        for (int i = 0; i < n; i++) if (ok[i])  combined.add(i);
 
-        if (h.equals(hprime)) System.out.println("Verification complete. Signature accepted.");
-        else System.out.println("Verification incomplete. Signature rejected.");
+        int m = combined.size();
+        BigInteger[] k = new BigInteger[2 * m + 1];
+        EC.Point[] P = new EC.Point[2 * m + 1];
+        BigInteger a = BigInteger.ZERO;         // Sum of c_i * z_i, the scalar for G
+
+        for (int j = 0; j < m; j++)
+        {
+            Signed S = batch.get(combined.get(j));
+            BigInteger c = new BigInteger(128, random).setBit(0);
+
+            a = a.add(c.multiply(S.z));
+            k[2 * j] = c.multiply(new BigInteger(1, S.h)).mod(EC.r);
+            P[2 * j] = S.V;
+            k[2 * j + 1] = EC.r.subtract(c);
+            P[2 * j + 1] = S.U;
+        }
+        k[2 * m] = a.mod(EC.r);
+        P[2 * m] = EC.G;
+
+        if (m > 0 && !EC.multSum(k, P).mult(BigInteger.valueOf(4)).equals(EC.O))
+            for (int i : combined)  ok[i] = false;
+
+        IntStream.range(0, n).parallel().filter(i -> !ok[i]).forEach(i -> ok[i] = batch.get(i).verify());
+
+        return ok;
     }
 
     /**
@@ -397,13 +1018,71 @@ public class Main {
     }
 
     /**
-     * Reads the contents of a file.
-     * @param fileName name of the text file to be read.
-     * @throws IOException if the file does not exist.
+     * Generates n random bytes utilizing the Java SecureRandom class.
+     * @param n the number of bytes.
+     * @return the bytes.
+     */
+    public static byte[] randomBytes(int n)
+    {
+        byte[] bytes = new byte[n];
+
+        new SecureRandom().nextBytes(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Reads the contents of a file through a file channel.
+     * @param fileName name of the file to be read.
+     * @throws IOException if the file does not exist or is too large.
      */
     public static byte[] readFile(String fileName) throws IOException
     {
-        return Files.readAllBytes(Paths.get(fileName));
+        try (FileChannel channel = FileChannel.open(path(fileName), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE - 8)   throw new IOException(fileName + " is too large to read into memory.");
+
+            ByteBuffer B = ByteBuffer.allocate((int) size);
+
+            while (B.hasRemaining() && channel.read(B) >= 0);
+
+            return B.hasRemaining() ? Arrays.copyOf(B.array(), B.position()) : B.array();
+        }
+    }
+
+    /**
+     * Reads a PUBLIC_KEY container.
+     * @param keyFile file where the elliptic public key is found.
+     * @return the public key.
+     * @throws IOException if the file does not exist or is not a public key.
+     */
+    public static EC.Point readPublicKey(String keyFile) throws IOException
+    {
+        try (Container.Reader in = Container.Reader.open(path(keyFile), Container.PUBLIC_KEY))
+        {
+            return in.getPoint();
+        }
+    }
+
+    /**
+     * Write a binary file through a file channel.
+     *
+     * @param fileName the name of the file to be written.
+     * @param content the contents of the file to be written.
+     * @throws IOException if the file cannot be written, or lies outside
+     *          the root of the command running on this thread.
+     */
+    public static void writeFile(String fileName, byte[] content) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer B = ByteBuffer.wrap(content);
+
+            while (B.hasRemaining())    channel.write(B);
+        }
     }
 
     /**
@@ -411,13 +1090,136 @@ public class Main {
      *
      * @param fileName the name of the file to be written.
      * @param message the contents of the file to be written.
+     * @throws IOException if the file cannot be written, or lies outside
+     *          the root of the command running on this thread.
+     */
+    public static void writeFile(String fileName, String message) throws IOException
+    {
+        writeFile(fileName, message.getBytes());
+    }
+
+    /**
+     * A message with its signature and the public key it is to be
+     * verified under.
      */
-    public static void writeFile(String fileName, String message)
+    public static final class Signed
     {
-        try (BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(fileName))) {
-            outputStream.write(message.getBytes());
-        } catch (IOException e) {
-            e.printStackTrace();
+        /**
+         * The message.
+         */
+        final byte[] m;
+        /**
+         * The signature hash h.
+         */
+        final byte[] h;
+        /**
+         * The signature scalar z.
+         */
+        final BigInteger z;
+        /**
+         * The signer's commitment U = k * G, or null if the signature
+         * does not carry it.
+         */
+        final EC.Point U;
+        /**
+         * The public key.
+         */
+        final EC.Point V;
+
+        /**
+         * Constructs a signed message.
+         *
+         * @param message the message.
+         * @param h the signature hash h.
+         * @param z the signature scalar z.
+         * @param U the commitment U, or null.
+         * @param V the public key.
+         */
+        public Signed(byte[] message, byte[] h, BigInteger z, EC.Point U, EC.Point V)
+        {
+            this.m = message;
+            this.h = h;
+            this.z = z;
+            this.U = U;
+            this.V = V;
+        }
+
+        /**
+         * Reads a signed message from its files.
+         *
+         * @param keyFile file where the elliptic public key is found.
+         * @param fileName file where the message is found.
+         * @param signature file where the message's SIGNATURE container is found.
+         * @return the signed message.
+         * @throws IOException if any of the given files could not be found
+         *          or is malformed.
+         */
+        public static Signed read(String keyFile, String fileName, String signature) throws IOException
+        {
+            try (Container.Reader in = Container.Reader.open(path(signature), Container.SIGNATURE))
+            {
+                return read(readFile(fileName), in, readPublicKey(keyFile));
+            }
+        }
+
+        /**
+         * Reads a signed message from a SIGNATURE container.
+         *
+         * @param message the message.
+         * @param in the container, positioned at h.
+         * @param V the public key.
+         * @return the signed message.
+         * @throws IOException if the container cannot be read or is malformed.
+         */
+        static Signed read(byte[] message, Container.Reader in, EC.Point V) throws IOException
+        {
+            byte[] h = in.get(Container.TAG_BYTES);
+            BigInteger z = in.getScalar(Container.SCALAR_BYTES);
+
+            return new Signed(message, h, z, in.getPoint(), V);
+        }
+
+        /**
+         * The signature hash of a commitment and a message:
+         * KMACXOF256(U, m, 512, "T") over the encoding of U.
+         *
+         * @param U the commitment.
+         * @param m the message.
+         * @return the hash.
+         */
+        static byte[] hash(EC.Point U, byte[] m)
+        {
+            return kmac(U.encode(), m, Container.TAG_BYTES, "T");
+        }
+
+        /**
+         * Verifies the signature with the equation verifyBatch uses. For
+         * U' = z * G + h * V, U must hash to h and 4 * (U' - U) must be O,
+         * so parts of order dividing the cofactor 4 are ignored. A
+         * signature without U is checked as if it carried U'.
+         *
+         * @return true IFF the signature is accepted.
+         */
+        public boolean verify()
+        {
+            EC.Point W = V.multAdd(new BigInteger(1, h), z, KeyHandle.multiples(V));
+
+            if (U == null)  return MessageDigest.isEqual(h, hash(W, m));
+
+            return committed() && W.add(U.negate()).mult(BigInteger.valueOf(4)).equals(EC.O);
+        }
+
+        /**
+         * Checks the hash half of the signature against the carried
+         * commitment: U must be present, U and V must be on the curve and
+         * U must hash to h.
+         *
+         * @return true IFF U is present, both points are on the curve
+         *          and U hashes to h.
+         */
+        boolean committed()
+        {
+            return U != null && U.isOnCurve() && V.isOnCurve() && MessageDigest.isEqual(h, hash(U, m));
         }
     }
 }
@@ -6,8 +6,22 @@
  * @version 1.0.050523
  */
 
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 /**
@@ -33,9 +47,417 @@ public class PartOneTests {
         assertEquals("incorrect right_encode()", "1000000000000000", IF.encode_string(""));
     }
 
+    @Test
+    public final void leftEncodeMultiByte()
+    {
+        assertEquals("incorrect left_encode()", "010000001000000000000000", IF.left_encode(256));
+    }
+
+    @Test
+    public final void kmacxof256()
+    {
+        byte[] K = new byte[32];
+        byte[] X = {0x00, 0x01, 0x02, 0x03};
+        StringBuilder t = new StringBuilder();
+
+        for (int i = 0; i < K.length; i++) K[i] = (byte) (0x40 + i);
+        for (byte z : DF.KMACXOF256(K, X, 64, "My Tagged Application".getBytes())) t.append(String.format("%02x", z));
+
+        assertEquals("incorrect KMACXOF256()", "1755133f1534752aad0748f2c706fb5c784512cab835cd15676b16c0c6647fa9"
+                + "6faa7af634a0bf8ff6df39374fa00fad9a39e322a7c92065a64eb1fb0801eb2b", t.toString());
+    }
+
+    @Test
+    public final void kmacIncremental()
+    {
+        byte[] K = "key".getBytes();
+        byte[] X = new byte[1000];
+        byte[] Z = new byte[300];
+        DF.KMAC mac = new DF.KMAC(K, "T".getBytes());
+
+        for (int i = 0; i < X.length; i++) X[i] = (byte) i;
+        for (int i = 0; i < X.length; i += 77) mac.update(X, i, Math.min(77, X.length - i));
+        for (int i = 0; i < Z.length; i += 50) mac.squeeze(Z, i, 50);
+
+        assertArrayEquals("incremental KMACXOF256() differs", DF.KMACXOF256(K, X, 300, "T".getBytes()), Z);
+    }
+
+    @Test
+    public final void spongeReuse()
+    {
+        byte[] K = "key".getBytes();
+        byte[] X = new byte[1000];
+        byte[] Z = new byte[300];
+        SHA3.Sponge sponge = SHA3.Sponge.local(SHA3.SHAKE);
+
+        for (int i = 0; i < X.length; i++) X[i] = (byte) i;
+
+        sponge.absorb(X, 0, 10).squeeze(Z, 0, 10);
+        sponge.reset().absorb(X, 0, X.length).squeeze(Z, 0, Z.length);
+        assertArrayEquals("reset sponge differs", SHA3.SHAKE256(X, 300), Z);
+        assertArrayEquals("sponge from ByteBuffer differs", SHA3.SHAKE256(ByteBuffer.wrap(X, 1, 998).order(ByteOrder.BIG_ENDIAN), 64),
+                SHA3.SHAKE256(Arrays.copyOfRange(X, 1, 999), 64));
+
+        DF.KMAC mac = DF.KMAC.local(K, "T".getBytes()).update(X, 0, X.length);
+        assertArrayEquals("local KMACXOF256() differs", DF.KMAC.cached(K, "T".getBytes()).update(X, 0, X.length).squeeze(300),
+                mac.squeeze(300));
+        assertArrayEquals("local KMACXOF256() is not reset", DF.KMACXOF256(K, X, 300, "T".getBytes()),
+                DF.KMAC.local(K, "T".getBytes()).update(X, 0, X.length).squeeze(300));
+    }
+
+    @Test
+    public final void kmacCache()
+    {
+        byte[] secret = "secret passphrase".getBytes();
+        byte[] S = "T".getBytes();
+        byte[] X = new byte[500];
+
+        for (int i = 0; i < X.length; i++) X[i] = (byte) (3 * i);
+
+        for (int n : new int[] {0, 1, 135, 136, 137, 500})
+        {
+            byte[] M = Arrays.copyOf(X, n);
+            byte[] expected = new DF.KMAC(secret, S).update(M, 0, n).squeeze(64);
+
+            assertArrayEquals("byte KMACXOF256() differs", expected, DF.KMACXOF256(secret, M, 64, S));
+            assertArrayEquals("ByteBuffer KMACXOF256() differs", expected, DF.KMACXOF256(secret, ByteBuffer.wrap(M), 64, S));
+            assertArrayEquals("local KMACXOF256() differs", expected, DF.KMAC.local(secret, S).update(M, 0, n).squeeze(64));
+            assertArrayEquals("batch KMACXOF256() differs", expected, DF.KMACXOF256(secret, new byte[][] {M}, 64, S)[0]);
+        }
+
+        assertFalse("secret key kept in the cache", DF.KMAC.isCached(secret, S));
+        assertArrayEquals("cached KMACXOF256() differs", DF.KMACXOF256(new byte[0], X, 64, S),
+                DF.KMAC.cached(new byte[0], S).update(X, 0, X.length).squeeze(64));
+        assertTrue("public key cached", DF.KMAC.isCached(new byte[0], S));
+
+        byte[] tag = Main.kmac("secret passphrase", X, 64, "T");
+        DF.KMAC prefix = DF.KMAC.prefix(secret, S);
+
+        assertArrayEquals("passphrase tag differs", new DF.KMAC(secret, S).update(X, 0, X.length).squeeze(64), tag);
+        assertTrue("passphrase prefix cached", DF.KMAC.isCached(secret, S));
+        assertArrayEquals("repeated tag differs", tag, Main.kmac("secret passphrase", X, 64, "T"));
+        assertSame("repeated tags reuse the prefix", prefix, DF.KMAC.prefix(secret, S));
+
+        for (int i = 0; i < DF.KEYED_CACHE_SIZE; i++)   DF.KMAC.cached(new byte[] {(byte) i, 1}, S);
+
+        DF.KMAC zero = new DF.KMAC(secret, S);
+        zero.clear();
+        assertFalse("evicted", DF.KMAC.isCached(secret, S));
+        assertArrayEquals("evicted prefix zeroed", zero.copy().squeeze(64), prefix.copy().squeeze(64));
+
+        DF.KMAC.cached(secret, S);
+        DF.clearCache();
+        assertFalse("cache cleared", DF.KMAC.isCached(secret, S) || DF.KMAC.isCached(new byte[0], S));
+    }
+
+    @Test
+    public final void kmacBatch()
+    {
+        byte[] K = "key".getBytes();
+        byte[] S = "T".getBytes();
+        byte[][] X = new byte[9][];
+
+        for (int i = 0; i < X.length; i++) X[i] = new byte[(i * 67) % 300];
+
+        byte[][] Z = DF.KMACXOF256(K, X, 64, S);
+
+        for (int i = 0; i < X.length; i++)
+        {
+            assertArrayEquals("batch KMACXOF256() differs", DF.KMACXOF256(K, X[i], 64, S), Z[i]);
+        }
+    }
+
+    @Test
+    public final void parallelHash256()
+    {
+        byte[] X = new byte[24];
+        StringBuilder t = new StringBuilder();
+
+        for (int i = 0; i < X.length; i++) X[i] = (byte) (16 * (i / 8) + (i % 8));
+        for (byte z : DF.ParallelHash256(X, 8, 64, "Parallel Data".getBytes())) t.append(String.format("%02x", z));
+
+        assertEquals("incorrect ParallelHash256()", "cdf15289b54f6212b4bc270528b49526006dd9b54e2b6add1ef6900dda3963bb"
+                + "33a72491f236969ca8afaea29c682d47a393c065b38e29fae651a2091c833110", t.toString());
+    }
+
+    @Test
+    public final void streamingCryptogram() throws IOException
+    {
+        byte[] m = new byte[2 * Main.BLOCK + 17];                   // Spans several blocks
+        ByteArrayOutputStream C = new ByteArrayOutputStream();
+        ByteArrayOutputStream M = new ByteArrayOutputStream();
+
+        for (int i = 0; i < m.length; i++) m[i] = (byte) (31 * i);
+
+        try (Container.Writer out = new Container.Writer(Channels.newChannel(C), Container.CRYPTOGRAM))
+        {
+            Main.writeCryptogram(out, "pw", Channels.newChannel(new ByteArrayInputStream(m)), m.length);
+        }
+
+        byte[] c = C.toByteArray();
+        try (Container.Reader in = new Container.Reader(Channels.newChannel(new ByteArrayInputStream(c)),
+                Container.CRYPTOGRAM))
+        {
+            assertTrue("tag accepted", Main.readCryptogram(in, "pw", Channels.newChannel(M)));
+        }
+        assertArrayEquals("decrypted", m, M.toByteArray());
+
+        int header = Container.MAGIC.length + 2;                    // Magic, version and type
+        byte[] z = Arrays.copyOfRange(c, header, header + Container.NONCE_BYTES);
+        byte[] keka = Main.kmac(Main.concat(z, Main.utf8("pw")), new byte[0], 128, "S");
+        byte[] ks = Main.kmac(Arrays.copyOf(keka, 64), new byte[0], m.length, "SKE");
+        int off = header + Container.NONCE_BYTES + Long.BYTES;
+
+        for (int i = 0; i < m.length; i++) assertEquals("keystream continues across blocks", (byte) (m[i] ^ ks[i]), c[off + i]);
+
+        c[c.length - 1] ^= 1;
+        try (Container.Reader in = new Container.Reader(Channels.newChannel(new ByteArrayInputStream(c)),
+                Container.CRYPTOGRAM))
+        {
+            assertFalse("bad tag rejected", Main.readCryptogram(in, "pw", Channels.newChannel(M)));
+        }
+    }
+
+    @Test
+    public final void decryptOnlyAuthenticated() throws IOException
+    {
+        Path dir = Files.createTempDirectory("decrypt");
+        Path m = dir.resolve("message.txt"), original = dir.resolve("originalMessage.txt");
+        byte[] text = new byte[Main.BLOCK + 3];
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(printed, true);
+
+        Arrays.fill(text, (byte) 'm');
+
+        try
+        {
+            Files.write(m, text);
+            Main.command(new String[] {"ENCRYPT", "pw", "message.txt"}, dir, null, out);
+            Files.write(original, Main.utf8("earlier"));
+
+            Main.command(new String[] {"DECRYPT", "wrong"}, dir, null, out);
+            assertArrayEquals("wrong passphrase leaves the old file", Main.utf8("earlier"), Files.readAllBytes(original));
+            assertEquals("no temporary file left", 3, dir.toFile().list().length);
+
+            Main.command(new String[] {"DECRYPT", "pw"}, dir, null, out);
+            assertArrayEquals("decrypted", text, Files.readAllBytes(original));
+            assertEquals("no temporary file left", 3, dir.toFile().list().length);
+        }
+        finally
+        {
+            for (File f : dir.toFile().listFiles())  Files.delete(f.toPath());
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public final void bitString()
+    {
+        Random random = new Random(7);
+        int[] lengths = {0, 1, 7, 8, 63, 64, 65, 130, 1000};
+
+        for (int i : lengths)
+        {
+            StringBuilder a = new StringBuilder(), b = new StringBuilder();
+
+            for (int k = 0; k < i; k++) a.append(random.nextBoolean() ? '1' : '0');
+            for (int k = 0; k < 2 * i + 3; k++) b.append(random.nextBoolean() ? '1' : '0');
+
+            BitString A = BitString.of(a.toString()), B = BitString.of(b.toString());
+            StringBuilder x = new StringBuilder();
+
+            for (int k = 0; k < i; k++) x.append(a.charAt(k) == b.charAt(k) ? '0' : '1');
+
+            assertEquals("append", a.toString() + b, A.append(B).toString());
+            assertEquals("xor", x.toString(), A.xor(B).toString());
+            assertEquals("truncate", b.substring(0, i), B.truncate(i).toString());
+            assertEquals("bytes", A, BitString.of(A.toBytes(), i));
+            assertEquals("bytesToBits", IF.bytesToBits(IF.bitsToBytes(b.toString()), b.length()), B.toString());
+        }
+    }
+
+    @Test
+    public final void keccakBlockBoundary()
+    {
+        Random random = new Random(1087);
+        int[] lengths = {0, 1, 7, 1080, 1086, 1087, 1088, 1089, 2175, 3263};
+
+        for (int n : lengths)
+        {
+            byte[] B = new byte[(n + 7) / 8];
+            random.nextBytes(B);
+            BitString N = BitString.of(B, n);
+
+            assertEquals("KECCAK of " + n + " bits", referenceKeccak(N, 512), SHA3.KECCAK(N, 512));
+        }
+    }
+
+    @Test
+    public final void keccakPermutation()
+    {
+        long[] expected = {
+                0xF1258F7940E1DDE7L, 0x84D5CCF933C0478AL, 0xD598261EA65AA9EEL, 0xBD1547306F80494DL, 0x8B284E056253D057L,
+                0xFF97A42D7F8E6FD4L, 0x90FEE5A0A44647C4L, 0x8C5BDA0CD6192E76L, 0xAD30A6F71B19059CL, 0x30935AB7D08FFC64L,
+                0xEB5AA93F2317D635L, 0xA9A6E6260D712103L, 0x81A57C16DBCF555FL, 0x43B831CD0347C826L, 0x01F22F1A11A5569FL,
+                0x05E5635A21D9AE61L, 0x64BEFEF28CC970F2L, 0x613670957BC46611L, 0xB87C5A554FD00ECBL, 0x8C3EE88A1CCF32C8L,
+                0x940C7922AE3A2614L, 0x1841F924A2C509E4L, 0x16F53526E70465C2L, 0x75F644E97F30A13BL, 0xEAF1FF7B5CECA249L
+        };
+        long[] A = new long[25], E = new long[25];
+
+        SHA3.KECCAK_p_scalar(A);
+        assertArrayEquals("KECCAK-f[1600] of the zero state", expected, A);
+
+        A = new long[25];
+        SHA3.KECCAK_p(A, E);
+        assertArrayEquals("first of two interleaved states", expected, A);
+        assertArrayEquals("second of two interleaved states", expected, E);
+    }
+
+    @Test
+    public final void sha3Vectors()
+    {
+        byte[] A3 = new byte[200];
+        byte[] X = new byte[200];
+        byte[] K = new byte[32];
+        byte[] S = "My Tagged Application".getBytes();
+        byte[] E = "Email Signature".getBytes();
+
+        Arrays.fill(A3, (byte) 0xA3);
+        for (int i = 0; i < X.length; i++) X[i] = (byte) i;
+        for (int i = 0; i < K.length; i++) K[i] = (byte) (0x40 + i);
+
+        String shakeEmpty = "46b9dd2b0ba88d13233b3feb743eeb243fcd52ea62b81b82b50c27646ed5762f"
+                + "d75dc4ddd8c0f200cb05019d67b592f6fc821c49479ab48640292eacb3b7c4be";
+        String shakeA3 = "cd8a920ed141aa0407a22d59288652e9d9f1a7ee0c1e7c1ca699424da84a904d"
+                + "2d700caae7396ece96604440577da4f3aa22aeb8857f961c4cd8e06f0ae6610b";
+        String cshake3 = "d008828e2b80ac9d2218ffee1d070c48b8e4c87bff32c9699d5b6896eee0edd1"
+                + "64020e2be0560858d9c00c037e34a96937c561a74c412bb4c746469527281c8c";
+        String cshake4 = "07dc27b11e51fbac75bc7b3c1d983e8b4b85fb1defaf218912ac864302730917"
+                + "27f42b17ed1df63e8ec118f04b23633c1dfb1574c8fb55cb45da8e25afb092bb";
+        String kmac5 = "ff7b171f1e8a2b24683eed37830ee797538ba8dc563f6da1e667391a75edc02c"
+                + "a633079f81ce12a25f45615ec89972031d18337331d24ceb8f8ca8e6a19fd98b";
+        String kmac6 = "d5be731c954ed7732846bb59dbe3a8e30f83e77a4bff4459f2f1c2b4ecebb8ce"
+                + "67ba01c62e8ab8578d2d499bd1bb276768781190020a306a97de281dcc30305d";
+
+        assertEquals("FIPS 202 SHAKE256, empty", shakeEmpty, hex(SHA3.SHAKE256(new byte[0], 64)));
+        assertEquals("FIPS 202 SHAKE256, 1600 bits", shakeA3, hex(SHA3.SHAKE256(A3, 64)));
+        assertEquals("SHAKE256 of a ByteBuffer", shakeA3, hex(SHA3.SHAKE256(ByteBuffer.wrap(A3), 64)));
+        assertEquals("SHAKE256 of bits", shakeA3, hex(SHA3.SHAKE256(BitString.of(A3), 512).toBytes()));
+
+        assertEquals("SP 800-185 cSHAKE256 sample 3", cshake3,
+                hex(DF.cSHAKE256(new byte[] {0, 1, 2, 3}, 64, new byte[0], E)));
+        assertEquals("SP 800-185 cSHAKE256 sample 4", cshake4, hex(DF.cSHAKE256(X, 64, new byte[0], E)));
+        assertEquals("cSHAKE256 of bits", cshake4,
+                hex(DF.cSHAKE256(BitString.of(X), 512, BitString.EMPTY, BitString.of(E)).toBytes()));
+
+        assertEquals("SP 800-185 KMACXOF256 sample 5", kmac5, hex(DF.KMACXOF256(K, X, 64, new byte[0])));
+        assertEquals("SP 800-185 KMACXOF256 sample 6", kmac6, hex(DF.KMACXOF256(K, X, 64, S)));
+        assertEquals("KMACXOF256 of a ByteBuffer", kmac6, hex(DF.KMACXOF256(K, ByteBuffer.wrap(X), 64, S)));
+        assertEquals("KMACXOF256 of bits", kmac6,
+                hex(DF.KMACXOF256(BitString.of(K), BitString.of(X), 512, BitString.of(S)).toBytes()));
+    }
+
+    @Test
+    public final void hashFileWindows() throws IOException
+    {
+        Random random = new Random(4);
+        byte[] K = "key".getBytes(), S = "D".getBytes();
+        byte[] X = new byte[10007];
+        Path f = Files.createTempFile("hash", ".bin");
+
+        try
+        {
+            random.nextBytes(X);
+            Files.write(f, X);
+            byte[] expected = DF.KMACXOF256(K, X, 64, S);
+
+            for (long window : new long[] {1, 7, 136, 1000, 4096, X.length, 1L << 20})
+            {
+                DF.KMAC mac = new DF.KMAC(K, S);
+
+                Main.hashFile(f.toString(), mac, window);
+                assertArrayEquals("window of " + window + " bytes", expected, mac.squeeze(64));
+            }
+
+            // Across a boundary of the default window
+            X = new byte[(int) Main.MAP_WINDOW + 1001];
+            for (int i = -1000; i < 1000; i++)  X[(int) Main.MAP_WINDOW + i] = (byte) (i * 31);
+            Files.write(f, X);
+
+            DF.KMAC mac = new DF.KMAC(K, S);
+            Main.hashFile(f.toString(), mac);
+            assertArrayEquals("default window", DF.KMACXOF256(K, X, 64, S), mac.squeeze(64));
+        }
+        finally
+        {
+            Files.delete(f);
+        }
+    }
+
+    @Test
+    public final void vectorPermutation()
+    {
+        Assume.assumeTrue("jdk.incubator.vector is not loaded",
+                ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+
+        Random random = new Random(7);
+
+        for (int k = 0; k < 100; k++)
+        {
+            long[] A = new long[25];
+
+            for (int i = 0; i < A.length; i++)  A[i] = random.nextLong();
+
+            long[] E = A.clone();
+
+            SHA3V.KECCAK_p(A);
+            SHA3.KECCAK_p_scalar(E);
+            assertArrayEquals("SHA3V.KECCAK_p differs from KECCAK_p_scalar", E, A);
+        }
+    }
+
     @Test
     public final void truncate()
     {
         assertEquals("error with trunc()", "01000000", IF.trunc("010000000", 8));
     }
+
+    /**
+     * Reference KECCAK[512] for outputs of at most one block: appends
+     * pad10*1 bit by bit, then absorbs the padded input a block at a time.
+     * @param N the input bits.
+     * @param d the bit length of the output, at most 8 * SHA3.rb.
+     * @return the output bits.
+     */
+    private static BitString referenceKeccak(BitString N, int d)
+    {
+        int zeros = Math.floorMod(-N.length() - 2, 8 * SHA3.rb);
+        byte[] P = N.append(BitString.ones(1)).append(BitString.zeros(zeros)).append(BitString.ones(1)).toBytes();
+        ByteBuffer in = ByteBuffer.wrap(P).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer out = ByteBuffer.allocate(200).order(ByteOrder.LITTLE_ENDIAN);
+        long[] S = new long[25];
+
+        for (int off = 0; off < P.length; off += SHA3.rb)
+        {
+            for (int i = 0; i < SHA3.rb / 8; i++)   S[i] ^= in.getLong(off + 8 * i);
+            SHA3.KECCAK_p_scalar(S);
+        }
+
+        for (long lane : S) out.putLong(lane);
+
+        return BitString.of(out.array(), d);
+    }
+
+    /**
+     * @param B bytes
+     * @return B in lower-case hexadecimal
+     */
+    private static String hex(byte[] B)
+    {
+        StringBuilder t = new StringBuilder();
+
+        for (byte z : B) t.append(String.format("%02x", z));
+
+        return t.toString();
+    }
 }
@@ -8,7 +8,29 @@
 
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -111,6 +133,695 @@ public class PartTwoTests
         }
     }
 
+    @Test
+    public final void fixedBaseTable()
+    {
+        EC.Point G = new EC.Point(EC.G.x, EC.G.y);      // Not EC.G, so mult skips the table
+
+        for (int i = 0; i < 10; i++)
+        {
+            BigInteger k = randomInt();
+            assertEquals(G.mult(k), EC.G.mult(k), "k * G with and without the table\nk: " + k);
+        }
+    }
+
+    @Test
+    public final void fixedBaseTableFile() throws IOException
+    {
+        Path f = Files.createTempFile("gtable", ".bin");
+        try
+        {
+            EC.Projective[][] T = EC.FixedBase.build();
+            EC.FixedBase.store(T, f);
+            EC.Projective[][] L = EC.FixedBase.load(f);
+
+            assertNotNull(L, "stored table loads");
+            assertEquals(T[EC.FixedBase.WINDOWS - 1][EC.FixedBase.ENTRIES - 1].Y,
+                    L[EC.FixedBase.WINDOWS - 1][EC.FixedBase.ENTRIES - 1].Y, "last entry survives the round trip");
+
+            byte[] B = Files.readAllBytes(f);
+            B[100] ^= 1;
+            Files.write(f, B);
+            assertNull(EC.FixedBase.load(f), "damaged table is rejected");
+
+            T[5][3] = T[5][4];                          // A valid point in the wrong place, with a matching digest
+            EC.FixedBase.store(T, f);
+            assertNull(EC.FixedBase.load(f), "crafted table is rejected");
+        }
+        finally
+        {
+            Files.deleteIfExists(f);
+        }
+    }
+
+    @Test
+    public final void doubleScalarMult()
+    {
+        for (int i = 0; i < 20; i++)
+        {
+            BigInteger a = randomInt();
+            BigInteger b = randomInt().shiftLeft(64);
+            EC.Point P = EC.G.mult(randomInt());
+            assertEquals(EC.G.mult(a).add(P.mult(b)), P.multAdd(b, a), "b * P + a * G\na: " + a + "\nb: " + b);
+        }
+        assertEquals(EC.O, EC.G.multAdd(EC.r.subtract(BigInteger.ONE), BigInteger.ONE), "(r - 1) * G + G == O");
+    }
+
+    @Test
+    public final void multiScalarMult()
+    {
+        for (int n : new int[] {1, 3, 40})
+        {
+            BigInteger[] k = new BigInteger[n];
+            EC.Point[] P = new EC.Point[n];
+            EC.Point sum = EC.O;
+
+            for (int i = 0; i < n; i++)
+            {
+                k[i] = randomInt();
+                P[i] = EC.G.mult(randomInt());
+                sum = sum.add(P[i].mult(k[i]));
+            }
+            assertEquals(sum, EC.multSum(k, P), "sum of k_i * P_i, n = " + n);
+        }
+    }
+
+    @Test
+    public final void batchVerification()
+    {
+        List<Main.Signed> batch = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++)
+        {
+            byte[] message = ("message " + i).getBytes();
+            BigInteger s = randomInt();
+            BigInteger k = randomInt();
+            EC.Point U = EC.G.mult(k);
+            byte[] h = Main.Signed.hash(U, message);
+            BigInteger z = k.subtract(new BigInteger(1, h).multiply(s)).mod(EC.r);
+
+            if (i == 5) z = z.add(BigInteger.ONE);                  // Bad scalar, U still hashes to h
+            batch.add(new Main.Signed(message, h, z, i == 2 ? null : U, EC.G.mult(s)));
+        }
+
+        boolean[] ok = Main.verifyBatch(batch);
+
+        for (int i = 0; i < ok.length; i++)
+        {
+            assertEquals(i != 5, ok[i], "signature " + i);
+            assertEquals(batch.get(i).verify(), ok[i], "batch agrees with single verification " + i);
+        }
+    }
+
+    @Test
+    public final void constantTimeMult()
+    {
+        EC.Point T = new EC.Point(BigInteger.ZERO, EC.p.subtract(BigInteger.ONE));   // The point of order 2
+        EC.Point P = EC.G.mult(randomInt()).add(T);
+
+        for (int i = 0; i < 10; i++)
+        {
+            BigInteger k = randomInt().shiftLeft(64).add(BigInteger.valueOf(i));
+            String message = "k: " + k;
+            assertAll(message,
+                    () -> assertEquals(EC.G.mult(k), EC.G.mult(k, true), "k * G"),
+                    () -> assertEquals(P.mult(k), P.mult(k, true), "k * P, P outside the subgroup of order r")
+            );
+        }
+        assertEquals(EC.O, EC.G.mult(EC.r, true), "r * G == O");
+    }
+
+    @Test
+    public final void pointEncoding()
+    {
+        for (int i = 0; i < 20; i++)
+        {
+            EC.Point P = EC.G.mult(randomInt());
+            byte[] B = P.encode();
+
+            assertEquals(EC.ENCODED_LENGTH, B.length, "encoded length");
+            assertEquals(P, EC.Point.decode(B, 0), "decode(encode(P)) == P");
+        }
+
+        byte[] B = EC.G.encode();
+        B[EC.ENCODED_LENGTH - 1] |= 1;
+        assertThrows(IllegalArgumentException.class, () -> EC.Point.decode(B, 0), "stray bits are rejected");
+
+        byte[] X = new byte[EC.ENCODED_LENGTH];
+        X[0] = 2;                                                   // (1 - 4) / (1 - 4d) is not a square
+        assertThrows(IllegalArgumentException.class, () -> EC.Point.decode(X, 0), "x off the curve is rejected");
+    }
+
+    @Test
+    public final void containerFormat() throws IOException
+    {
+        Path f = Files.createTempFile("container", ".bin");
+        EC.Point U = EC.G.mult(randomInt());
+        BigInteger z = randomInt().mod(EC.r);
+        byte[] c = new byte[3 * Container.BUFFER + 5];               // Spans several buffers
+
+        for (int i = 0; i < c.length; i++)  c[i] = (byte) i;
+
+        try
+        {
+            try (Container.Writer out = Container.Writer.create(f, Container.SIGNATURE))
+            {
+                out.putScalar(z, Container.SCALAR_BYTES).putLong(c.length).put(c).putPoint(U);
+            }
+            assertEquals(6 + Container.SCALAR_BYTES + 8 + c.length + EC.ENCODED_LENGTH, Files.size(f), "file size");
+
+            try (Container.Reader in = Container.Reader.open(f, Container.SIGNATURE))
+            {
+                assertEquals(z, in.getScalar(Container.SCALAR_BYTES), "scalar");
+                assertEquals(c.length, in.getLong(), "length");
+                assertArrayEquals(c, in.get(c.length), "bytes");
+                assertEquals(U, in.getPoint(), "point");
+                assertThrows(IOException.class, () -> in.get(1), "reading past the end");
+            }
+
+            assertThrows(IOException.class, () -> Container.Reader.open(f, Container.PUBLIC_KEY), "type is checked");
+
+            byte[] B = Files.readAllBytes(f);
+            B[Container.MAGIC.length]++;
+            Files.write(f, B);
+            assertThrows(IOException.class, () -> Container.Reader.open(f, Container.SIGNATURE), "version is checked");
+        }
+        finally
+        {
+            Files.delete(f);
+        }
+    }
+
+    @Test
+    public final void ciphertextLength() throws IOException
+    {
+        Path f = Files.createTempFile("container", ".bin");
+        byte[] c = new byte[3 * Container.BUFFER + 5];               // Grows past the first block
+
+        for (int i = 0; i < c.length; i++)  c[i] = (byte) i;
+
+        try
+        {
+            try (Container.Writer out = Container.Writer.create(f, Container.EC_CRYPTOGRAM))
+            {
+                out.putPoint(EC.G).putLong(c.length).put(c).put(new byte[Container.TAG_BYTES]);
+            }
+            byte[] B = Files.readAllBytes(f);
+
+            try (Container.Reader in = Container.Reader.open(f, Container.EC_CRYPTOGRAM))
+            {
+                in.getPoint();
+                assertArrayEquals(c, Main.ciphertext(in), "ciphertext from a file");
+            }
+            try (Container.Reader in = new Container.Reader(Channels.newChannel(new ByteArrayInputStream(B)), Container.EC_CRYPTOGRAM))
+            {
+                in.getPoint();
+                assertArrayEquals(c, Main.ciphertext(in), "ciphertext from a stream");
+            }
+
+            ByteBuffer.wrap(B).putLong(6 + EC.ENCODED_LENGTH, Integer.MAX_VALUE - 16);   // Claims nearly 2 GiB
+            Files.write(f, B);
+
+            try (Container.Reader in = Container.Reader.open(f, Container.EC_CRYPTOGRAM))
+            {
+                in.getPoint();
+                assertThrows(IOException.class, () -> Main.ciphertext(in), "length beyond the file");
+            }
+            try (Container.Reader in = new Container.Reader(Channels.newChannel(new ByteArrayInputStream(B)), Container.EC_CRYPTOGRAM))
+            {
+                in.getPoint();
+                assertThrows(EOFException.class, () -> Main.ciphertext(in), "length beyond the stream");
+            }
+        }
+        finally
+        {
+            Files.delete(f);
+        }
+    }
+
+    @Test
+    public final void ecDecryptOnlyAuthenticated() throws IOException
+    {
+        Path dir = Files.createTempDirectory("ecdecrypt");
+        Path original = dir.resolve("originalMessage-ec.txt");
+        byte[] text = "message".getBytes();
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true);
+
+        try
+        {
+            Files.write(dir.resolve("message.txt"), text);
+            Main.command(new String[] {"KEY", "pw"}, dir, null, out);
+            Main.command(new String[] {"ECENCRYPT", "public.key", "message.txt"}, dir, null, out);
+            Files.write(original, Main.utf8("earlier"));
+            int files = dir.toFile().list().length;
+
+            Main.command(new String[] {"ECDECRYPT", "wrong", "ec-cryptogram.txt"}, dir, null, out);
+            assertArrayEquals(Main.utf8("earlier"), Files.readAllBytes(original), "wrong passphrase leaves the old file");
+            assertEquals(files, dir.toFile().list().length, "no temporary file left");
+
+            byte[] C = Files.readAllBytes(dir.resolve("ec-cryptogram.txt"));
+            C[C.length - 1] ^= 1;
+            Files.write(dir.resolve("forged.txt"), C);
+            Main.command(new String[] {"ECDECRYPT", "pw", "forged.txt"}, dir, null, out);
+            assertArrayEquals(Main.utf8("earlier"), Files.readAllBytes(original), "bad tag leaves the old file");
+
+            Main.command(new String[] {"ECDECRYPT", "pw", "ec-cryptogram.txt"}, dir, null, out);
+            assertArrayEquals(text, Files.readAllBytes(original), "decrypted");
+            assertEquals(files + 1, dir.toFile().list().length, "no temporary file left");
+        }
+        finally
+        {
+            for (File f : dir.toFile().listFiles())  Files.delete(f.toPath());
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public final void writeFileFailure() throws IOException
+    {
+        Path dir = Files.createTempDirectory("write");
+
+        try
+        {
+            assertThrows(IOException.class, () -> Main.writeFile(dir.resolve("missing/file.txt").toString(), "text"),
+                    "failures reach the caller");
+        }
+        finally
+        {
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public final void batchNormalization()
+    {
+        EC.Projective[] P = new EC.Projective[9];
+        BigInteger[] k = new BigInteger[P.length];
+
+        for (int i = 0; i < P.length; i++)
+        {
+            k[i] = randomInt();
+            P[i] = EC.G.multProjective(k[i], i % 2 == 0);
+        }
+        P[4] = EC.Projective.neutral();
+        k[4] = BigInteger.ZERO;
+
+        EC.Point[] A = EC.toAffine(P);
+
+        for (int i = 0; i < P.length; i++)   assertEquals(EC.G.mult(k[i]), A[i], "point " + i);
+
+        GF[] a = {new GF(randomInt()), new GF(), new GF(randomInt())};
+        BigInteger a0 = a[0].toBigInteger();
+        GF.invertAll(a);
+        assertEquals(a0.modInverse(EC.p), a[0].toBigInteger(), "1 / a");
+        assertTrue(a[1].isZero(), "0 stays 0");
+    }
+
+    @Test
+    public final void fieldArithmetic()
+    {
+        for (int i = 0; i < 50; i++)
+        {
+            BigInteger a = randomInt();
+            BigInteger b = randomInt();
+            GF A = new GF(a);
+            GF B = new GF(b);
+            String message = "a: " + a + "\nb: " + b;
+            assertAll(message,
+                    () -> assertEquals(a.add(b).mod(EC.p), new GF().add(A, B).toBigInteger(), "a + b"),
+                    () -> assertEquals(a.subtract(b).mod(EC.p), new GF().sub(A, B).toBigInteger(), "a - b"),
+                    () -> assertEquals(a.multiply(b).mod(EC.p), new GF().mul(A, B).toBigInteger(), "a * b"),
+                    () -> assertEquals(a.multiply(a).mod(EC.p), new GF().sqr(A).toBigInteger(), "a^2"),
+                    () -> assertEquals(a.modInverse(EC.p), new GF().inv(A).toBigInteger(), "1 / a"),
+                    () -> assertEquals(IF.sqrt(a, EC.p, true), nullable(IF.sqrt(A, true)), "sqrt(a)")
+            );
+        }
+    }
+
+    @Test
+    public final void torsionVerification()
+    {
+        EC.Point T = new EC.Point(BigInteger.ONE, BigInteger.ZERO);        // A point of order 4
+        List<Main.Signed> batch = new ArrayList<>();
+
+        assertEquals(EC.O, T.mult(BigInteger.valueOf(4)), "T has order dividing 4");
+
+        for (int i = 0; i < 6; i++)
+        {
+            byte[] message = ("message " + i).getBytes();
+            BigInteger s = randomInt();
+            BigInteger k = randomInt();
+            EC.Point U = EC.G.mult(k);
+            EC.Point V = EC.G.mult(s);
+
+            if (i % 3 == 1) U = U.add(T);                               // Torsion in the commitment
+            if (i % 3 == 2) V = V.add(T);                               // Torsion in the public key
+
+            byte[] h = Main.Signed.hash(U, message);
+            BigInteger z = k.subtract(new BigInteger(1, h).multiply(s)).mod(EC.r);
+
+            batch.add(new Main.Signed(message, h, z, U, V));
+        }
+
+        boolean[] ok = Main.verifyBatch(batch);
+        boolean[] alone = Main.verifyBatch(batch.subList(0, 1));
+
+        for (int i = 0; i < ok.length; i++)
+        {
+            assertTrue(ok[i], "torsion is ignored in the batch " + i);
+            assertEquals(batch.get(i).verify(), ok[i], "batch agrees with single verification " + i);
+            assertEquals(Main.verifyBatch(List.of(batch.get(i), batch.get(0)))[0], ok[i], "verdict independent of the batch " + i);
+        }
+        assertTrue(alone[0], "batch of one");
+    }
+
+    @Test
+    public final void projectiveMatchesAffine()
+    {
+        for (int i = 0; i < 8; i++)
+        {
+            EC.Point P = referenceMult(EC.G, randomInt());
+            EC.Point Q = referenceMult(EC.G, randomInt());
+            BigInteger k = randomInt();
+            EC.Point kP = referenceMult(P, k), kG = referenceMult(EC.G, k);
+
+            assertAll(
+                    () -> assertEquals(referenceAdd(P, Q), P.add(Q), "P + Q"),
+                    () -> assertEquals(referenceAdd(P, P), new EC.Projective(P).dbl().toAffine(), "2 * P"),
+                    () -> assertEquals(EC.O, P.add(P.negate()), "P + -P"),
+                    () -> assertEquals(kP, P.mult(k), "k * P"),
+                    () -> assertEquals(kP, P.mult(k, true), "k * P on the regular schedule"),
+                    () -> assertEquals(kG, EC.G.mult(k), "k * G"),
+                    () -> assertEquals(kG, EC.G.mult(k, true), "k * G on the regular schedule"),
+                    () -> assertEquals(referenceAdd(kP, kG), P.multAdd(k, k), "k * P + k * G")
+            );
+        }
+    }
+
+    @Test
+    public final void concurrentService() throws Exception
+    {
+        try (Service service = Service.fixed(4, 8))
+        {
+            byte[] V = service.publicKey("pw").get();
+            List<CompletableFuture<byte[]>> signatures = new ArrayList<>();
+            List<CompletableFuture<byte[]>> cryptograms = new ArrayList<>();
+
+            for (int i = 0; i < 24; i++)
+            {
+                byte[] m = ("message " + i).getBytes();
+
+                signatures.add(service.sign("pw", m));
+                cryptograms.add(service.encrypt("pw", m));
+                assertTrue(service.pending() <= 8, "at most maxPending operations in flight");
+            }
+
+            for (int i = 0; i < 24; i++)
+            {
+                byte[] m = ("message " + i).getBytes();
+
+                assertTrue(service.verify(V, m, signatures.get(i).get()).get(), "signature " + i);
+                assertFalse(service.verify(V, "other".getBytes(), signatures.get(i).get()).get(), "wrong message " + i);
+                assertArrayEquals(m, service.decrypt("pw", cryptograms.get(i).get()).get(), "cryptogram " + i);
+            }
+
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> service.decrypt("wrong", cryptograms.get(0).get()).get(), "wrong passphrase");
+            assertTrue(e.getCause() instanceof IOException, "fails with IOException");
+            assertArrayEquals(DF.KMACXOF256(new byte[0], "m".getBytes(), 64, "D".getBytes()),
+                    service.hash("m".getBytes()).get(), "hash");
+        }
+    }
+
+    @Test
+    public final void keyHandleCache() throws Exception
+    {
+        KeyHandle key = KeyHandle.acquire("handle"), same = KeyHandle.acquire("handle"), other = KeyHandle.acquire("other");
+        BigInteger s = Main.privateKey("handle");
+
+        assertSame(key, same, "one handle per passphrase");
+        assertNotSame(key, other, "distinct passphrases");
+        assertEquals(s, key.scalar(), "s");
+        assertEquals(EC.G.mult(s), key.publicKey(), "V = s * G");
+        assertSame(key.multiples(), KeyHandle.multiples(key.publicKey()), "multiples kept by the handle");
+
+        BigInteger a = randomInt(), b = randomInt();
+        assertEquals(key.publicKey().multAdd(b, a), key.publicKey().multAdd(b, a, key.multiples()), "b * V + a * G");
+
+        KeyHandle.evict(System.nanoTime() + KeyHandle.IDLE_NANOS);
+        assertEquals(s, key.scalar(), "pinned handle kept");
+        same.release();
+        other.release();
+        key.release();
+        assertThrows(IllegalStateException.class, key::release, "released once per acquire");
+
+        try (Service service = Service.fixed(1, 1))
+        {
+            byte[] m = "message".getBytes();
+            byte[] signature = service.sign("handle", m).get();
+
+            assertTrue(service.verify(service.publicKey("handle").get(), m, signature).get(), "signature");
+
+            KeyHandle.evict(System.nanoTime() + KeyHandle.IDLE_NANOS);
+            assertEquals(0, KeyHandle.cached(), "idle handles evicted");
+            assertThrows(IllegalStateException.class, key::scalar, "evicted handle zeroed");
+            assertNotSame(key.multiples(), KeyHandle.multiples(key.publicKey()), "evicted multiples unpublished");
+            assertArrayEquals(signature, service.sign("handle", m).get(), "same signature from a new handle");
+
+            KeyHandle again = KeyHandle.acquire("handle");
+            assertNotSame(key, again, "new handle after eviction");
+            again.release();
+        }
+    }
+
+    @Test
+    public final void keyHandleEvictedWhileSigning() throws Exception
+    {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread evictor = new Thread(() ->
+        {
+            while (!done.get()) KeyHandle.evict(System.nanoTime(), 1);     // A tick with a 1 ns idle period
+        });
+        byte[] m = "message".getBytes();
+
+        evictor.start();
+
+        try (Service service = Service.fixed(2, 4))
+        {
+            byte[] V = service.publicKey("evicted").get();
+            List<CompletableFuture<byte[]>> signatures = new ArrayList<>();
+
+            for (int i = 0; i < 32; i++)    signatures.add(service.sign("evicted", m));
+            for (CompletableFuture<byte[]> f : signatures)
+                assertTrue(service.verify(V, m, f.get()).get(), "signed across eviction ticks");
+        }
+        finally
+        {
+            done.set(true);
+            evictor.join();
+        }
+    }
+
+    @Test
+    public final void clientCountsResponses() throws Exception
+    {
+        Path dir = Files.createTempDirectory("client");
+        Path socket = dir.resolve("t487.sock");
+        String[] replies = {"", "OK 2\nonly one line\n"};         // Refused, then cut off mid-response
+
+        try (ServerSocketChannel server = Daemon.open(Client.address(socket.toString())))
+        {
+            for (String reply : replies)
+            {
+                Thread daemon = new Thread(() ->
+                {
+                    try (SocketChannel ch = server.accept())
+                    {
+                        ch.write(ByteBuffer.wrap(reply.getBytes(StandardCharsets.UTF_8)));
+                    }
+                    catch (IOException e)
+                    {
+                        throw new java.io.UncheckedIOException(e);
+                    }
+                });
+                daemon.start();
+
+                assertEquals(1, Client.run(socket.toString(), "HASH", "message.txt"), "missing response fails");
+                daemon.join();
+            }
+
+            try (Service service = Service.fixed(1, 1))
+            {
+                Path cwd = Paths.get("").toRealPath();
+                Thread handler = new Thread(() ->
+                {
+                    try
+                    {
+                        Daemon.handle(server.accept(), service, cwd);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new java.io.UncheckedIOException(e);
+                    }
+                });
+                handler.start();
+
+                String user = System.getProperty("user.name");
+
+                System.setProperty("user.name", "someone-else");            // Not what the peer check reads
+                try
+                {
+                    assertEquals(0, Client.run(socket.toString(), "HASH", "pom.xml"), "answered request succeeds");
+                }
+                finally
+                {
+                    System.setProperty("user.name", user);
+                }
+                handler.join();
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(socket);
+            Files.delete(dir);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> Client.request("/tmp", "HASH", "a\tb"), "tab in an argument");
+        assertThrows(IllegalArgumentException.class, () -> Client.request("/tmp\n", "HASH", "a"), "line break in the directory");
+    }
+
+    @Test
+    public final void daemonErrors()
+    {
+        Exception cause = new java.nio.file.AccessDeniedException("f", null, "Outside /r.");
+
+        assertEquals("f: Outside /r.", Daemon.error(new java.util.concurrent.CompletionException(cause)), "wrapper dropped");
+        assertEquals("f: Outside /r.", Daemon.error(cause), "message only");
+        assertEquals("java.lang.NullPointerException", Daemon.error(new NullPointerException()), "name without a message");
+    }
+
+    @Test
+    public final void daemonPipelining() throws Exception
+    {
+        Path dir = Files.createTempDirectory("daemon").toRealPath();
+        Path socket = dir.resolve("t487.sock"), outside = Files.createTempFile("outside", ".txt");
+        Files.write(dir.resolve("message.txt"), "message".getBytes());
+        Files.createSymbolicLink(dir.resolve("link.txt"), outside);
+
+        try (Service service = Service.fixed(2, 4);
+             ServerSocketChannel server = Daemon.open(Client.address(socket.toString())))
+        {
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socket),
+                    "socket file is private to its owner");
+
+            Thread handler = new Thread(() ->
+            {
+                try
+                {
+                    Daemon.handle(server.accept(), service, dir);
+                }
+                catch (IOException e)
+                {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            handler.start();
+
+            try (SocketChannel ch = SocketChannel.open(Client.address(socket.toString())))
+            {
+                String d = dir.toString();
+                BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(ch), StandardCharsets.UTF_8));
+
+                ch.write(ByteBuffer.wrap(Client.request(d, "KEY", "pw").getBytes(StandardCharsets.UTF_8)));
+                assertEquals("OK 2", in.readLine(), "KEY");
+                assertEquals("Public key generated: public.key", in.readLine());
+                assertEquals("Private key encrypted: private.key", in.readLine());
+
+                ch.write(ByteBuffer.wrap(Client.request(d, "SIGN", "pw", "message.txt").getBytes(StandardCharsets.UTF_8)));
+                assertEquals("OK 1", in.readLine(), "SIGN");
+                assertEquals("Message signed: signature.txt", in.readLine());
+
+                String requests = Client.request(d, "VERIFY", "public.key", "message.txt", "signature.txt")
+                        + Client.request(d, "HASH", "-u") + Client.request(d, "VERIFY", "public.key")
+                        + Client.request(d, "HASH", outside.toString()) + Client.request(d, "HASH", "../" + outside.getFileName())
+                        + Client.request(d, "HASH", "link.txt") + Client.request(dir.getParent().toString(), "HASH", "message.txt")
+                        + Client.request(d, "VERIFY", "public.key", "message.txt", "signature.txt");
+
+                ch.write(ByteBuffer.wrap(requests.getBytes(StandardCharsets.UTF_8)));
+                ch.shutdownOutput();
+
+                assertEquals("OK 1", in.readLine(), "VERIFY");
+                assertEquals("Verification complete. Signature accepted.", in.readLine());
+                assertEquals("ERR 1", in.readLine(), "-u is rejected");
+                in.readLine();
+                assertEquals("ERR 1", in.readLine(), "missing arguments fail");
+                assertEquals("Index 2 out of bounds for length 2", in.readLine());
+                assertEquals("ERR 1", in.readLine(), "absolute name outside the root");
+                assertEquals(outside + ": Outside " + dir + ".", in.readLine(), "the cause's message only");
+                assertEquals("ERR 1", in.readLine(), "relative name outside the root");
+                assertTrue(in.readLine().endsWith(": Outside " + dir + "."));
+                assertEquals("ERR 1", in.readLine(), "link out of the root");
+                assertEquals("link.txt: Outside " + dir + ".", in.readLine());
+                assertEquals("ERR 1", in.readLine(), "directory outside the root");
+                in.readLine();
+                assertEquals("OK 1", in.readLine(), "responses stay in request order");
+                assertEquals("Verification complete. Signature accepted.", in.readLine());
+                assertNull(in.readLine(), "connection closed after the last response");
+            }
+
+            handler.join();
+        }
+        finally
+        {
+            Files.delete(outside);
+        }
+    }
+
+    /**
+     * Reference Edwards addition in affine coordinates with BigInteger
+     * arithmetic, independent of GF and EC.Projective.
+     * @param P a point
+     * @param Q a point
+     * @return P + Q
+     */
+    private static EC.Point referenceAdd(EC.Point P, EC.Point Q)
+    {
+        BigInteger xx = P.x.multiply(Q.x), yy = P.y.multiply(Q.y);
+        BigInteger dxxyy = EC.d.multiply(xx).multiply(yy);
+        BigInteger x = P.x.multiply(Q.y).add(P.y.multiply(Q.x)).multiply(BigInteger.ONE.add(dxxyy).modInverse(EC.p));
+        BigInteger y = yy.subtract(xx).multiply(BigInteger.ONE.subtract(dxxyy).modInverse(EC.p));
+
+        return new EC.Point(x.mod(EC.p), y.mod(EC.p));
+    }
+
+    /**
+     * Reference double-and-add on referenceAdd.
+     * @param P a point
+     * @param k a positive scalar
+     * @return k * P
+     */
+    private static EC.Point referenceMult(EC.Point P, BigInteger k)
+    {
+        EC.Point V = EC.O;
+
+        for (int i = k.bitLength() - 1; i >= 0; i--)
+        {
+            V = referenceAdd(V, V);
+            if (k.testBit(i))   V = referenceAdd(V, P);
+        }
+
+        return V;
+    }
+
+    /**
+     * @param v a field element or null
+     * @return v as a BigInteger, or null
+     */
+    private static BigInteger nullable(GF v)
+    {
+        return v == null ? null : v.toBigInteger();
+    }
+
     /**
      * @return Random BigInteger within the range [1, p - 1]
      */
@@ -6,6 +6,12 @@
  * @version 1.2.050722
  */
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 /**
  * The SHA-3 standard: Permutation-based hash and extendable-output functions.
  */
@@ -17,6 +23,86 @@ class SHA3 {
     static final int w = b / 25;                               // KECCAK-p width
     static final int l = (int) (Math.log(w) / Math.log(2));    // Log base 2 of w
     static final int r = b - c;                                // Sponge rate
+    static final int rb = r / 8;                               // Sponge rate in bytes
+
+    static final byte SHAKE = 0x1F;                            // SHAKE suffix 1111 followed by the first pad bit
+    static final byte CSHAKE = 0x04;                           // cSHAKE suffix 00 followed by the first pad bit
+
+    /**
+     * Reads and writes byte[] contents as little-endian lanes.
+     */
+    private static final VarHandle LANE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    /**
+     * Reads ByteBuffer contents as little-endian lanes, whatever the
+     * buffer's own byte order.
+     */
+    private static final VarHandle BUFFER_LANE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * KECCAK-f[1600] round constants, one 64-bit lane per round index.
+     * Checked against rc() when the class is initialized.
+     */
+    static final long[] RC = {
+            0x0000000000000001L, 0x0000000000008082L, 0x800000000000808AL, 0x8000000080008000L,
+            0x000000000000808BL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+            0x000000000000008AL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000AL,
+            0x000000008000808BL, 0x800000000000008BL, 0x8000000000008089L, 0x8000000000008003L,
+            0x8000000000008002L, 0x8000000000000080L, 0x000000000000800AL, 0x800000008000000AL,
+            0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+    };
+
+    /**
+     * Rotation offsets of rho, indexed by lane x + 5y.
+     * Checked against the offsets ((t + 1)(t + 2)) / 2 when the class is initialized.
+     */
+    static final int[] RHO = {
+             0,  1, 62, 28, 27,
+            36, 44,  6, 55, 20,
+             3, 10, 43, 25, 39,
+            41, 45, 15, 21,  8,
+            18,  2, 61, 56, 14
+    };
+
+    // Verify the tables against the algorithms of the standard
+    static
+    {
+        int x = 1, y = 0;
+
+        for (int i = 0; i < nr; i++)
+        {
+            long RCi = 0;
+
+            for (int j = 0; j <= l; j++)
+            {
+                if (rc(j + (7 * i)) == '1') RCi |= 1L << ((1 << j) - 1);
+            }
+
+            if (RCi != RC[i]) throw new IllegalStateException("RC table disagrees with rc() in round " + i);
+        }
+
+        for (int t = 0; t < 24; t++)
+        {
+            if (RHO[x + 5 * y] != IF.mod(((t + 1) * (t + 2)) / 2, w))
+            {
+                throw new IllegalStateException("RHO table disagrees with the rho offsets at lane (" + x + ", " + y + ")");
+            }
+
+            int u = x;
+
+            //noinspection SuspiciousNameCombination
+            x = y;
+            y = IF.mod((2 * u) + (3 * y), 5);
+        }
+    }
+
+    /**
+     * True if the permutation runs on the Vector API backend SHA3V.
+     * Set when the system property sha3.vector is true and the
+     * jdk.incubator.vector module is present and runs natively on this
+     * platform. The scalar engine is used otherwise.
+     * Initialized after RC and RHO, which SHA3V reads.
+     */
+    static final boolean VECTOR = vectorBackend();
 
     /**
      * SHA-3 extendable-output function.
@@ -27,7 +113,46 @@ class SHA3 {
      * @param d the integer representing the output length.
      * @return the hash output string.
      */
-    static String SHAKE256(String M, int d) {  return KECCAK(M.concat("1111"), d); }
+    static String SHAKE256(String M, int d) {  return SHAKE256(BitString.of(M), d).toString(); }
+
+    /**
+     * Bit string SHAKE256.
+     * @param M the message bits.
+     * @param d the output length in bits.
+     * @return the hash output bits.
+     */
+    static BitString SHAKE256(BitString M, int d) {  return KECCAK(M.append(BitString.ones(4)), d);   }
+
+    /**
+     * Byte-oriented SHAKE256.
+     * @param M the message bytes.
+     * @param d the output length in bytes.
+     * @return d bytes of output.
+     */
+    static byte[] SHAKE256(byte[] M, int d)
+    {
+        byte[] Z = new byte[d];
+
+        Sponge.local(SHAKE).absorb(M, 0, M.length).squeeze(Z, 0, d);
+
+        return Z;
+    }
+
+    /**
+     * Byte-oriented SHAKE256 over the remaining bytes of a buffer.
+     * The buffer's position is advanced to its limit.
+     * @param M the message buffer.
+     * @param d the output length in bytes.
+     * @return d bytes of output.
+     */
+    static byte[] SHAKE256(ByteBuffer M, int d)
+    {
+        byte[] Z = new byte[d];
+
+        Sponge.local(SHAKE).absorb(M).squeeze(Z, 0, d);
+
+        return Z;
+    }
 
     /**
      * KECCAK Sponge.
@@ -41,280 +166,503 @@ class SHA3 {
      * @param d the bit length of the output string.
      * @return a string with length d.
      */
-    static String KECCAK(String N, int d)
-    {
-        String P, S, Z;
-        int n;
+    static String KECCAK(String N, int d) {  return KECCAK(BitString.of(N), d).toString();   }
 
-        // Step 1
-        P = N.concat(IF.pad101(r, N.length()));
+    /**
+     * Bit string KECCAK[512] sponge, with pad10*1.
+     * @param N the input bits.
+     * @param d the bit length of the output.
+     * @return the output bits.
+     */
+    static BitString KECCAK(BitString N, int d)
+    {
+        byte[] P = N.toBytes();                     // N packed into bytes
+        int n = N.length() / 8;                     // Number of whole bytes in N
+        int k = N.length() % 8;                     // Number of trailing bits in N
+        long[] S = new long[25];
+        byte[] Z = new byte[(d + 7) / 8];
 
-        // Step 2
-        n = P.length() / r;
+        // The trailing bits of N are followed by the first bit of pad10*1
+        pad(S, absorb(S, 0, P, 0, n), (k == 0) ? 1 : (P[n] & ((1 << k) - 1)) | (1 << k));
+        squeeze(S, 0, Z, 0, Z.length);
 
-        // Step 3 and 4 are omitted (Unnecessary)
-        // Step 5
-        S = "0".repeat(b);
+        return BitString.of(Z, d);
+    }
 
-        // Step 6
-        for (int i = 0; i < n; i++)
+    /**
+     * XORs bytes into the rate of the state, starting at byte position pos
+     * of the current block. The state is permuted each time a block fills.
+     * @param S the 25 lanes of the state.
+     * @param pos the byte position within the current block.
+     * @param M the bytes to absorb.
+     * @param off offset of the first byte of M.
+     * @param len number of bytes to absorb.
+     * @return the byte position within the current block afterwards.
+     */
+    static int absorb(long[] S, int pos, byte[] M, int off, int len)
+    {
+        while (len > 0)
         {
-            S = KECCAK_p(IF.xorStrings(S, P.substring(r * i, r * (i + 1)).concat("0".repeat(c))));
-        }
+            if ((pos & 7) == 0 && len >= 8)
+            {
+                int n = Math.min(len, rb - pos) >>> 3;    // Whole lanes left in this block
 
-        // Step 7
-        Z = "";
+                for (int i = 0; i < n; i++) S[(pos >>> 3) + i] ^= (long) LANE.get(M, off + (i << 3));
 
-        // Step 8
-        Z = Z.concat(IF.trunc(S, r));
+                pos += n << 3;
+                off += n << 3;
+                len -= n << 3;
+            }
+            else
+            {
+                S[pos >>> 3] ^= (M[off++] & 0xFFL) << ((pos & 7) << 3);
+                pos++;
+                len--;
+            }
 
-        // Step 9 and 10
-        while (d > Z.length())
-        {
-            S = KECCAK_p(S);
-            Z = Z.concat(IF.trunc(S, r));
+            if (pos == rb)
+            {
+                KECCAK_p(S);
+                pos = 0;
+            }
         }
 
-        return IF.trunc(Z, d);
-
+        return pos;
     }
 
     /**
-     * Performs a set of KECCAK permutations on a string.
-     * The global variables (B, L, N, W) control the operation.
-     * @param s the string
-     * @return the transformed string
+     * XORs the remaining bytes of a buffer into the rate of the state.
+     * The buffer's position is advanced to its limit.
+     * @param S the 25 lanes of the state.
+     * @param pos the byte position within the current block.
+     * @param M the bytes to absorb.
+     * @return the byte position within the current block afterwards.
      */
-    static String KECCAK_p(String s)
+    static int absorb(long[] S, int pos, ByteBuffer M)
     {
-        boolean[][][] A = new boolean[5][5][w];     // The state array
-        StringBuilder sb = new StringBuilder();     // Helps build the required strings
-        String[][] lane = new String[5][5];         // A lane of the state array
-        String[] plane = new String[5];             // A plane of the state array
+        int i = M.position(), end = M.limit();
 
-        // Step 1: Convert string to state array
-        for (int y = 0; y < 5; y++)
+        while (i < end)
         {
-            for (int x = 0; x < 5; x++)
+            if ((pos & 7) == 0 && end - i >= 8)
             {
-                for (int z = 0; z < w; z++)
-                {
-                    char c = s.charAt(w * (5 * y + x) + z);
-
-                    A[x][y][z] = c != '0';
-
-                }
+                S[pos >>> 3] ^= (long) BUFFER_LANE.get(M, i);
+                i += 8;
+                pos += 8;
             }
-        }
-
-        // Step 2: Start round transformations
-        for (int i = 12 + (2 * l) - nr; i <= 12 + (2 * l) - 1; i++) {    A = rnd(A, i);  }
-
-        // Step 3: Convert state array to string
-        // Create the lane strings
-        for (int y = 0; y < 5; y++)
-        {
-            for (int x = 0; x < 5; x++)
+            else
             {
-                for (int z = 0; z < w; z++)
-                {
-                    if (A[x][y][z]) sb.append('1');
-                    else sb.append('0');
-
-                }
-                lane[x][y] = sb.toString();
-                sb = new StringBuilder();
+                S[pos >>> 3] ^= (M.get(i++) & 0xFFL) << ((pos & 7) << 3);
+                pos++;
             }
-        }
 
-        // Create the plane strings
-        for (int y = 0; y < 5; y++)
-        {
-            for (int x = 0; x < 5; x++) sb.append(lane[x][y]);
-
-            plane[y] = sb.toString();
-            sb = new StringBuilder();
+            if (pos == rb)
+            {
+                KECCAK_p(S);
+                pos = 0;
+            }
         }
 
-        // Create the string
-        for (int y = 0; y < 5; y++) sb.append(plane[y]);
+        M.position(M.limit());
 
-        // Step 4: Return the string
-        return sb.toString();
+        return pos;
     }
 
     /**
-     * This function constitutes a round.
-     * It applies the step mappings theta, rho, pi, chi, and iota, in that order.
-     * @param A the state array
-     * @param i the round index
-     * @return the updated state array
+     * Finishes absorbing: XORs the delimited suffix and the last bit of
+     * pad10*1 into the current block, then permutes the state.
+     * The suffix holds any trailing message bits, least significant first,
+     * followed by the first bit of pad10*1 (e.g. SHAKE or CSHAKE).
+     * When that first bit is the last bit of the block, the last bit of
+     * pad10*1 goes in a block of its own.
+     * @param S the 25 lanes of the state.
+     * @param pos the byte position within the current block.
+     * @param suffix the delimited suffix byte.
      */
-    static boolean[][][] rnd(boolean[][][] A, int i) { return iota(chi(pi(rho(theta(A)))), i); }
+    static void pad(long[] S, int pos, int suffix)
+    {
+        S[pos >>> 3] ^= (suffix & 0xFFL) << ((pos & 7) << 3);
+        if ((suffix & 0x80) != 0 && pos == rb - 1)  KECCAK_p(S);
+        S[(rb - 1) >>> 3] ^= 0x80L << 56;
+
+        KECCAK_p(S);
+    }
 
     /**
-     * The first step mapping for a round of KECCAK-p[1600,24].
-     *
-     * @param A 5x5x64 array of booleans representing the state.
-     * @return the updated state array.
+     * Copies output bytes out of the rate of the state, starting at byte
+     * position pos of the current block. The state is permuted each time
+     * a block has been read in full.
+     * @param S the 25 lanes of the state.
+     * @param pos the byte position within the current block.
+     * @param Z the output buffer.
+     * @param off offset of the first byte written to Z.
+     * @param len number of bytes to squeeze.
+     * @return the byte position within the current block afterwards.
      */
-    static boolean[][][] theta(boolean[][][] A) {
-
-        boolean[][] C = new boolean[5][w];                  // Helper array
-        boolean[][] D = new boolean[5][w];                  // Helper array
-        boolean[][][] R = new boolean[5][5][w];             // The new state array
-
-        // Step 1
-        for (int x = 0; x < 5; x++)
+    static int squeeze(long[] S, int pos, byte[] Z, int off, int len)
+    {
+        while (len > 0)
         {
-            for (int z = 0; z < w; z++)
+            if (pos == rb)
             {
-                C[x][z] = A[x][0][z] ^ A[x][1][z] ^ A[x][2][z] ^ A[x][3][z] ^ A[x][4][z];
+                KECCAK_p(S);
+                pos = 0;
             }
-        }
 
-        // Step 2
-        for (int x = 0; x < 5; x++)
-        {
-            for (int z = 0; z < w; z++)
+            if ((pos & 7) == 0 && len >= 8)
             {
-                D[x][z] = C[IF.mod(x - 1, 5)][z] ^ C[IF.mod(x + 1,
-                        5)][IF.mod(z - 1, w)];
+                LANE.set(Z, off, S[pos >>> 3]);
+                pos += 8;
+                off += 8;
+                len -= 8;
             }
-        }
-
-        // Step 3
-        for (int y = 0; y < 5; y++)
-        {
-            for (int x = 0; x < 5; x++)
+            else
             {
-                for (int z = 0; z < w; z++)
-                {
-                    R[x][y][z] = A[x][y][z] ^ D[x][z];
-                }
+                Z[off++] = (byte) (S[pos >>> 3] >>> ((pos & 7) << 3));
+                pos++;
+                len--;
             }
         }
 
-        return R;
+        return pos;
     }
 
     /**
-     * The second step mapping for a round of KECCAK-p[1600,24].
-     *
-     * @param A 5x5x64 array of booleans representing the state.
-     * @return the updated state array.
+     * Performs a set of KECCAK permutations on a string.
+     * The string is converted to the 25 lanes of the state,
+     * permuted in place by KECCAK_p(long[]), then converted back.
+     * @param s the string
+     * @return the transformed string
      */
-    static boolean[][][] rho(boolean[][][] A)
+    static String KECCAK_p(String s)
     {
-        boolean[][][] R = new boolean[5][5][w];             // The new state array
-        int x = 1, y = 0;                                   // Step 2
-
-        // Step 1
-        System.arraycopy(A[0][0], 0, R[0][0], 0, w);
+        long[] A = new long[25];                    // The state lanes
+        StringBuilder sb = new StringBuilder(b);    // Helps build the returned string
 
-        // Step 3
-        for (int t = 0; t < 24; t++)
+        // Step 1: Convert string to lanes
+        for (int i = 0; i < b; i++)
         {
-            for (int z = 0; z < w; z++)
-            {
-                R[x][y][z] = A[x][y][IF.mod(z - (((t + 1) * (t + 2)) / 2), w)];
-            }
-
-            //noinspection SuspiciousNameCombination
-            x = y;
-            y = IF.mod((2 * x) + (3 * y), 5);
+            if (s.charAt(i) != '0') A[i >>> 6] |= 1L << (i & 63);
         }
 
-        // Step 4
-        return R;
+        // Step 2: Start round transformations
+        KECCAK_p(A);
+
+        // Step 3: Convert lanes to string
+        for (int i = 0; i < b; i++) sb.append(((A[i >>> 6] >>> (i & 63)) & 1L) == 0 ? '0' : '1');
+
+        // Step 4: Return the string
+        return sb.toString();
     }
 
     /**
-     * The third step mapping for a round of KECCAK-p[1600,24].
-     *
-     * @param A 5x5x64 array of booleans representing the state.
-     * @return the updated state array.
+     * KECCAK-f[1600] on the 25 64-bit lanes of the state, in place.
+     * Lane A[x + 5y] holds bits z = 0..63 of the state array at (x, y),
+     * least significant bit first. Runs on the Vector API backend SHA3V
+     * when VECTOR is set, otherwise on KECCAK_p_scalar.
+     * @param A the 25 lanes of the state.
      */
-    static boolean[][][] pi(boolean[][][] A)
+    static void KECCAK_p(long[] A)
     {
-        boolean[][][] R = new boolean[5][5][w];             // The new state array
+        if (VECTOR) SHA3V.KECCAK_p(A);
+        else KECCAK_p_scalar(A);
+    }
 
-        // Step 1
-        for (int y = 0; y < 5; y++)
+    /**
+     * Scalar KECCAK-f[1600] on the 25 64-bit lanes of the state, in place.
+     * The 24 rounds share one body with theta, rho, pi, chi and iota
+     * unrolled across the lanes; the rotation offsets are the constants
+     * of RHO and the round constants come from RC.
+     * @param A the 25 lanes of the state.
+     */
+    static void KECCAK_p_scalar(long[] A)
+    {
+        long a00 = A[0], a01 = A[1], a02 = A[2], a03 = A[3], a04 = A[4];
+        long a05 = A[5], a06 = A[6], a07 = A[7], a08 = A[8], a09 = A[9];
+        long a10 = A[10], a11 = A[11], a12 = A[12], a13 = A[13], a14 = A[14];
+        long a15 = A[15], a16 = A[16], a17 = A[17], a18 = A[18], a19 = A[19];
+        long a20 = A[20], a21 = A[21], a22 = A[22], a23 = A[23], a24 = A[24];
+        long b00, b01, b02, b03, b04, b05, b06, b07, b08, b09, b10, b11, b12;
+        long b13, b14, b15, b16, b17, b18, b19, b20, b21, b22, b23, b24;
+        long c0, c1, c2, c3, c4;
+        long d0, d1, d2, d3, d4;
+
+        for (int i = 0; i < nr; i++)
         {
-            for (int x = 0; x < 5; x++)
-            {
-                System.arraycopy(A[IF.mod(x + (3 * y), 5)][x], 0, R[x][y], 0, w);
-            }
+            // theta
+            c0 = a00 ^ a05 ^ a10 ^ a15 ^ a20;
+            c1 = a01 ^ a06 ^ a11 ^ a16 ^ a21;
+            c2 = a02 ^ a07 ^ a12 ^ a17 ^ a22;
+            c3 = a03 ^ a08 ^ a13 ^ a18 ^ a23;
+            c4 = a04 ^ a09 ^ a14 ^ a19 ^ a24;
+            d0 = c4 ^ Long.rotateLeft(c1, 1);
+            d1 = c0 ^ Long.rotateLeft(c2, 1);
+            d2 = c1 ^ Long.rotateLeft(c3, 1);
+            d3 = c2 ^ Long.rotateLeft(c4, 1);
+            d4 = c3 ^ Long.rotateLeft(c0, 1);
+
+            // rho and pi
+            b00 = a00 ^ d0;
+            b01 = Long.rotateLeft(a06 ^ d1, 44);
+            b02 = Long.rotateLeft(a12 ^ d2, 43);
+            b03 = Long.rotateLeft(a18 ^ d3, 21);
+            b04 = Long.rotateLeft(a24 ^ d4, 14);
+            b05 = Long.rotateLeft(a03 ^ d3, 28);
+            b06 = Long.rotateLeft(a09 ^ d4, 20);
+            b07 = Long.rotateLeft(a10 ^ d0, 3);
+            b08 = Long.rotateLeft(a16 ^ d1, 45);
+            b09 = Long.rotateLeft(a22 ^ d2, 61);
+            b10 = Long.rotateLeft(a01 ^ d1, 1);
+            b11 = Long.rotateLeft(a07 ^ d2, 6);
+            b12 = Long.rotateLeft(a13 ^ d3, 25);
+            b13 = Long.rotateLeft(a19 ^ d4, 8);
+            b14 = Long.rotateLeft(a20 ^ d0, 18);
+            b15 = Long.rotateLeft(a04 ^ d4, 27);
+            b16 = Long.rotateLeft(a05 ^ d0, 36);
+            b17 = Long.rotateLeft(a11 ^ d1, 10);
+            b18 = Long.rotateLeft(a17 ^ d2, 15);
+            b19 = Long.rotateLeft(a23 ^ d3, 56);
+            b20 = Long.rotateLeft(a02 ^ d2, 62);
+            b21 = Long.rotateLeft(a08 ^ d3, 55);
+            b22 = Long.rotateLeft(a14 ^ d4, 39);
+            b23 = Long.rotateLeft(a15 ^ d0, 41);
+            b24 = Long.rotateLeft(a21 ^ d1, 2);
+
+            // chi
+            a00 = b00 ^ (~b01 & b02);
+            a01 = b01 ^ (~b02 & b03);
+            a02 = b02 ^ (~b03 & b04);
+            a03 = b03 ^ (~b04 & b00);
+            a04 = b04 ^ (~b00 & b01);
+            a05 = b05 ^ (~b06 & b07);
+            a06 = b06 ^ (~b07 & b08);
+            a07 = b07 ^ (~b08 & b09);
+            a08 = b08 ^ (~b09 & b05);
+            a09 = b09 ^ (~b05 & b06);
+            a10 = b10 ^ (~b11 & b12);
+            a11 = b11 ^ (~b12 & b13);
+            a12 = b12 ^ (~b13 & b14);
+            a13 = b13 ^ (~b14 & b10);
+            a14 = b14 ^ (~b10 & b11);
+            a15 = b15 ^ (~b16 & b17);
+            a16 = b16 ^ (~b17 & b18);
+            a17 = b17 ^ (~b18 & b19);
+            a18 = b18 ^ (~b19 & b15);
+            a19 = b19 ^ (~b15 & b16);
+            a20 = b20 ^ (~b21 & b22);
+            a21 = b21 ^ (~b22 & b23);
+            a22 = b22 ^ (~b23 & b24);
+            a23 = b23 ^ (~b24 & b20);
+            a24 = b24 ^ (~b20 & b21);
+
+            // iota
+            a00 ^= RC[i];
         }
 
-        // Step 2
-        return R;
+        A[0] = a00; A[1] = a01; A[2] = a02; A[3] = a03; A[4] = a04;
+        A[5] = a05; A[6] = a06; A[7] = a07; A[8] = a08; A[9] = a09;
+        A[10] = a10; A[11] = a11; A[12] = a12; A[13] = a13; A[14] = a14;
+        A[15] = a15; A[16] = a16; A[17] = a17; A[18] = a18; A[19] = a19;
+        A[20] = a20; A[21] = a21; A[22] = a22; A[23] = a23; A[24] = a24;
     }
 
     /**
-     * The fourth step mapping for a round of KECCAK-p[1600,24].
-     *
-     * @param A 5x5x64 array of booleans representing the state.
-     * @return the updated state array.
+     * Decides whether the permutation runs on the Vector API backend.
+     * @return true if SHA3V is requested, present and supported.
      */
-    static boolean[][][] chi(boolean[][][] A)
+    private static boolean vectorBackend()
     {
-        boolean[][][] R = new boolean[5][5][w];             // The new state array
+        if (!Boolean.getBoolean("sha3.vector")) return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
 
-        // Step 1
-        for (int y = 0; y < 5; y++)
+        try
         {
-            for (int x = 0; x < 5; x++)
-            {
-                for (int z = 0; z < w; z++)
-                {
-                    R[x][y][z] = A[x][y][z] ^ ((!A[IF.mod(x + 1, 5)][y][z])
-                            && A[IF.mod(x + 2, 5)][y][z]);
-                }
-            }
+            return SHA3V.supported();
+        }
+        catch (LinkageError e)
+        {
+            return false;
         }
-
-        // Step 2
-        return R;
     }
 
     /**
-     * The fifth step mapping for a round of KECCAK-p[1600,24].
-     *
-     * @param A 5x5x64 array of booleans representing the state.
-     * @param i round index.
-     * @return the updated state array.
+     * KECCAK-f[1600] on two independent states at once, in place.
+     * The unrolled round bodies of the two states are interleaved step by
+     * step, so each step offers the processor two independent chains of
+     * lane operations to overlap.
+     * @param A the 25 lanes of the first state.
+     * @param E the 25 lanes of the second state.
      */
-    static boolean[][][] iota(boolean[][][] A, int i)
+    static void KECCAK_p(long[] A, long[] E)
     {
-        boolean[][][] R = new boolean[5][5][w];             // The new state array
-        StringBuilder RC;                                   // Round constant
-
-        // Step 1
-        for (int y = 0; y < 5; y++)
+        long a00 = A[0], a01 = A[1], a02 = A[2], a03 = A[3], a04 = A[4];
+        long a05 = A[5], a06 = A[6], a07 = A[7], a08 = A[8], a09 = A[9];
+        long a10 = A[10], a11 = A[11], a12 = A[12], a13 = A[13], a14 = A[14];
+        long a15 = A[15], a16 = A[16], a17 = A[17], a18 = A[18], a19 = A[19];
+        long a20 = A[20], a21 = A[21], a22 = A[22], a23 = A[23], a24 = A[24];
+        long e00 = E[0], e01 = E[1], e02 = E[2], e03 = E[3], e04 = E[4];
+        long e05 = E[5], e06 = E[6], e07 = E[7], e08 = E[8], e09 = E[9];
+        long e10 = E[10], e11 = E[11], e12 = E[12], e13 = E[13], e14 = E[14];
+        long e15 = E[15], e16 = E[16], e17 = E[17], e18 = E[18], e19 = E[19];
+        long e20 = E[20], e21 = E[21], e22 = E[22], e23 = E[23], e24 = E[24];
+        long ab00, ab01, ab02, ab03, ab04, ab05, ab06, ab07, ab08, ab09, ab10, ab11, ab12;
+        long ab13, ab14, ab15, ab16, ab17, ab18, ab19, ab20, ab21, ab22, ab23, ab24;
+        long ac0, ac1, ac2, ac3, ac4;
+        long ad0, ad1, ad2, ad3, ad4;
+        long eb00, eb01, eb02, eb03, eb04, eb05, eb06, eb07, eb08, eb09, eb10, eb11, eb12;
+        long eb13, eb14, eb15, eb16, eb17, eb18, eb19, eb20, eb21, eb22, eb23, eb24;
+        long ec0, ec1, ec2, ec3, ec4;
+        long ed0, ed1, ed2, ed3, ed4;
+
+        for (int i = 0; i < nr; i++)
         {
-            for (int x = 0; x < 5; x++) System.arraycopy(A[x][y], 0, R[x][y], 0, w);
+            // theta
+            ac0 = a00 ^ a05 ^ a10 ^ a15 ^ a20;
+            ec0 = e00 ^ e05 ^ e10 ^ e15 ^ e20;
+            ac1 = a01 ^ a06 ^ a11 ^ a16 ^ a21;
+            ec1 = e01 ^ e06 ^ e11 ^ e16 ^ e21;
+            ac2 = a02 ^ a07 ^ a12 ^ a17 ^ a22;
+            ec2 = e02 ^ e07 ^ e12 ^ e17 ^ e22;
+            ac3 = a03 ^ a08 ^ a13 ^ a18 ^ a23;
+            ec3 = e03 ^ e08 ^ e13 ^ e18 ^ e23;
+            ac4 = a04 ^ a09 ^ a14 ^ a19 ^ a24;
+            ec4 = e04 ^ e09 ^ e14 ^ e19 ^ e24;
+            ad0 = ac4 ^ Long.rotateLeft(ac1, 1);
+            ed0 = ec4 ^ Long.rotateLeft(ec1, 1);
+            ad1 = ac0 ^ Long.rotateLeft(ac2, 1);
+            ed1 = ec0 ^ Long.rotateLeft(ec2, 1);
+            ad2 = ac1 ^ Long.rotateLeft(ac3, 1);
+            ed2 = ec1 ^ Long.rotateLeft(ec3, 1);
+            ad3 = ac2 ^ Long.rotateLeft(ac4, 1);
+            ed3 = ec2 ^ Long.rotateLeft(ec4, 1);
+            ad4 = ac3 ^ Long.rotateLeft(ac0, 1);
+            ed4 = ec3 ^ Long.rotateLeft(ec0, 1);
+
+            // rho and pi
+            ab00 = a00 ^ ad0;
+            eb00 = e00 ^ ed0;
+            ab01 = Long.rotateLeft(a06 ^ ad1, 44);
+            eb01 = Long.rotateLeft(e06 ^ ed1, 44);
+            ab02 = Long.rotateLeft(a12 ^ ad2, 43);
+            eb02 = Long.rotateLeft(e12 ^ ed2, 43);
+            ab03 = Long.rotateLeft(a18 ^ ad3, 21);
+            eb03 = Long.rotateLeft(e18 ^ ed3, 21);
+            ab04 = Long.rotateLeft(a24 ^ ad4, 14);
+            eb04 = Long.rotateLeft(e24 ^ ed4, 14);
+            ab05 = Long.rotateLeft(a03 ^ ad3, 28);
+            eb05 = Long.rotateLeft(e03 ^ ed3, 28);
+            ab06 = Long.rotateLeft(a09 ^ ad4, 20);
+            eb06 = Long.rotateLeft(e09 ^ ed4, 20);
+            ab07 = Long.rotateLeft(a10 ^ ad0, 3);
+            eb07 = Long.rotateLeft(e10 ^ ed0, 3);
+            ab08 = Long.rotateLeft(a16 ^ ad1, 45);
+            eb08 = Long.rotateLeft(e16 ^ ed1, 45);
+            ab09 = Long.rotateLeft(a22 ^ ad2, 61);
+            eb09 = Long.rotateLeft(e22 ^ ed2, 61);
+            ab10 = Long.rotateLeft(a01 ^ ad1, 1);
+            eb10 = Long.rotateLeft(e01 ^ ed1, 1);
+            ab11 = Long.rotateLeft(a07 ^ ad2, 6);
+            eb11 = Long.rotateLeft(e07 ^ ed2, 6);
+            ab12 = Long.rotateLeft(a13 ^ ad3, 25);
+            eb12 = Long.rotateLeft(e13 ^ ed3, 25);
+            ab13 = Long.rotateLeft(a19 ^ ad4, 8);
+            eb13 = Long.rotateLeft(e19 ^ ed4, 8);
+            ab14 = Long.rotateLeft(a20 ^ ad0, 18);
+            eb14 = Long.rotateLeft(e20 ^ ed0, 18);
+            ab15 = Long.rotateLeft(a04 ^ ad4, 27);
+            eb15 = Long.rotateLeft(e04 ^ ed4, 27);
+            ab16 = Long.rotateLeft(a05 ^ ad0, 36);
+            eb16 = Long.rotateLeft(e05 ^ ed0, 36);
+            ab17 = Long.rotateLeft(a11 ^ ad1, 10);
+            eb17 = Long.rotateLeft(e11 ^ ed1, 10);
+            ab18 = Long.rotateLeft(a17 ^ ad2, 15);
+            eb18 = Long.rotateLeft(e17 ^ ed2, 15);
+            ab19 = Long.rotateLeft(a23 ^ ad3, 56);
+            eb19 = Long.rotateLeft(e23 ^ ed3, 56);
+            ab20 = Long.rotateLeft(a02 ^ ad2, 62);
+            eb20 = Long.rotateLeft(e02 ^ ed2, 62);
+            ab21 = Long.rotateLeft(a08 ^ ad3, 55);
+            eb21 = Long.rotateLeft(e08 ^ ed3, 55);
+            ab22 = Long.rotateLeft(a14 ^ ad4, 39);
+            eb22 = Long.rotateLeft(e14 ^ ed4, 39);
+            ab23 = Long.rotateLeft(a15 ^ ad0, 41);
+            eb23 = Long.rotateLeft(e15 ^ ed0, 41);
+            ab24 = Long.rotateLeft(a21 ^ ad1, 2);
+            eb24 = Long.rotateLeft(e21 ^ ed1, 2);
+
+            // chi
+            a00 = ab00 ^ (~ab01 & ab02);
+            e00 = eb00 ^ (~eb01 & eb02);
+            a01 = ab01 ^ (~ab02 & ab03);
+            e01 = eb01 ^ (~eb02 & eb03);
+            a02 = ab02 ^ (~ab03 & ab04);
+            e02 = eb02 ^ (~eb03 & eb04);
+            a03 = ab03 ^ (~ab04 & ab00);
+            e03 = eb03 ^ (~eb04 & eb00);
+            a04 = ab04 ^ (~ab00 & ab01);
+            e04 = eb04 ^ (~eb00 & eb01);
+            a05 = ab05 ^ (~ab06 & ab07);
+            e05 = eb05 ^ (~eb06 & eb07);
+            a06 = ab06 ^ (~ab07 & ab08);
+            e06 = eb06 ^ (~eb07 & eb08);
+            a07 = ab07 ^ (~ab08 & ab09);
+            e07 = eb07 ^ (~eb08 & eb09);
+            a08 = ab08 ^ (~ab09 & ab05);
+            e08 = eb08 ^ (~eb09 & eb05);
+            a09 = ab09 ^ (~ab05 & ab06);
+            e09 = eb09 ^ (~eb05 & eb06);
+            a10 = ab10 ^ (~ab11 & ab12);
+            e10 = eb10 ^ (~eb11 & eb12);
+            a11 = ab11 ^ (~ab12 & ab13);
+            e11 = eb11 ^ (~eb12 & eb13);
+            a12 = ab12 ^ (~ab13 & ab14);
+            e12 = eb12 ^ (~eb13 & eb14);
+            a13 = ab13 ^ (~ab14 & ab10);
+            e13 = eb13 ^ (~eb14 & eb10);
+            a14 = ab14 ^ (~ab10 & ab11);
+            e14 = eb14 ^ (~eb10 & eb11);
+            a15 = ab15 ^ (~ab16 & ab17);
+            e15 = eb15 ^ (~eb16 & eb17);
+            a16 = ab16 ^ (~ab17 & ab18);
+            e16 = eb16 ^ (~eb17 & eb18);
+            a17 = ab17 ^ (~ab18 & ab19);
+            e17 = eb17 ^ (~eb18 & eb19);
+            a18 = ab18 ^ (~ab19 & ab15);
+            e18 = eb18 ^ (~eb19 & eb15);
+            a19 = ab19 ^ (~ab15 & ab16);
+            e19 = eb19 ^ (~eb15 & eb16);
+            a20 = ab20 ^ (~ab21 & ab22);
+            e20 = eb20 ^ (~eb21 & eb22);
+            a21 = ab21 ^ (~ab22 & ab23);
+            e21 = eb21 ^ (~eb22 & eb23);
+            a22 = ab22 ^ (~ab23 & ab24);
+            e22 = eb22 ^ (~eb23 & eb24);
+            a23 = ab23 ^ (~ab24 & ab20);
+            e23 = eb23 ^ (~eb24 & eb20);
+            a24 = ab24 ^ (~ab20 & ab21);
+            e24 = eb24 ^ (~eb20 & eb21);
+
+            // iota
+            a00 ^= RC[i];
+            e00 ^= RC[i];
         }
 
-        // Step 2
-        RC = new StringBuilder("0".repeat(w));
-
-        // Step 3
-        for (int j = 0; j <= l; j++)    RC.setCharAt((int) Math.pow(2, j) - 1, rc(j + (7 * i)));
-
-        // Step 4
-        for (int z = 0; z < w; z++)
-        {
-            if (RC.charAt(z) == '1') R[0][0][z] = !R[0][0][z];
-        }
+        A[0] = a00; A[1] = a01; A[2] = a02; A[3] = a03; A[4] = a04;
+        A[5] = a05; A[6] = a06; A[7] = a07; A[8] = a08; A[9] = a09;
+        A[10] = a10; A[11] = a11; A[12] = a12; A[13] = a13; A[14] = a14;
+        A[15] = a15; A[16] = a16; A[17] = a17; A[18] = a18; A[19] = a19;
+        A[20] = a20; A[21] = a21; A[22] = a22; A[23] = a23; A[24] = a24;
+        E[0] = e00; E[1] = e01; E[2] = e02; E[3] = e03; E[4] = e04;
+        E[5] = e05; E[6] = e06; E[7] = e07; E[8] = e08; E[9] = e09;
+        E[10] = e10; E[11] = e11; E[12] = e12; E[13] = e13; E[14] = e14;
+        E[15] = e15; E[16] = e16; E[17] = e17; E[18] = e18; E[19] = e19;
+        E[20] = e20; E[21] = e21; E[22] = e22; E[23] = e23; E[24] = e24;
 
-        // Step 5
-        return R;
     }
 
     /**
-     * Round constant method utilized inside iota().
+     * Round constant bit rc(t), computed by the LFSR of the standard.
+     * Only used to verify the RC table when the class is initialized.
      * @param t an integer.
      * @return bit rc(t) in char format.
      */
@@ -329,14 +677,14 @@ class SHA3 {
         StringBuilder R = new StringBuilder("10000000");
 
         // Step 3
-        for (int i = 0; i <= u; i++)
+        for (int i = 1; i <= u; i++)
         {
 
             R.insert(0, "0");
-            R.setCharAt(0, (char) (R.charAt(0) ^ R.charAt(8)));
-            R.setCharAt(4, (char) (R.charAt(4) ^ R.charAt(8)));
-            R.setCharAt(5, (char) (R.charAt(5) ^ R.charAt(8)));
-            R.setCharAt(6, (char) (R.charAt(6) ^ R.charAt(8)));
+            R.setCharAt(0, (char) ((R.charAt(0) ^ R.charAt(8)) | '0'));
+            R.setCharAt(4, (char) ((R.charAt(4) ^ R.charAt(8)) | '0'));
+            R.setCharAt(5, (char) ((R.charAt(5) ^ R.charAt(8)) | '0'));
+            R.setCharAt(6, (char) ((R.charAt(6) ^ R.charAt(8)) | '0'));
 
             R = new StringBuilder(IF.trunc(R.toString(), 8));
 
@@ -345,4 +693,169 @@ class SHA3 {
         // Step 4
         return R.charAt(0);
     }
-}
\ No newline at end of file
+
+    /**
+     * An incremental KECCAK[512] sponge. Input is absorbed in pieces of
+     * any size, the padding is applied by the first call to squeeze, and
+     * output can then be squeezed in pieces of any size.
+     */
+    static class Sponge
+    {
+        /**
+         * Each thread's reusable sponges, by suffix.
+         */
+        private static final ThreadLocal<Sponge[]> LOCAL = ThreadLocal.withInitial(() -> new Sponge[256]);
+
+        /**
+         * The 25 lanes of the state.
+         */
+        final long[] A = new long[25];
+        /**
+         * The delimited suffix applied at finalization.
+         */
+        private final int suffix;
+        /**
+         * The byte position within the current block.
+         */
+        private int pos;
+        /**
+         * True once the sponge has been padded and is squeezing.
+         */
+        private boolean squeezing;
+
+        /**
+         * Constructs an empty sponge.
+         *
+         * @param suffix the delimited suffix applied at finalization,
+         *               e.g. SHA3.SHAKE or SHA3.CSHAKE.
+         */
+        Sponge(int suffix)
+        {
+            this.suffix = suffix;
+        }
+
+        /**
+         * Empties this sponge so it can be used again from the start.
+         *
+         * @return this sponge.
+         */
+        Sponge reset()
+        {
+            Arrays.fill(A, 0L);
+            pos = 0;
+            squeezing = false;
+
+            return this;
+        }
+
+        /**
+         * Overwrites this sponge with the state and position of another,
+         * without allocating. Both must have the same suffix.
+         *
+         * @param s the sponge to copy from.
+         * @return this sponge.
+         * @throws IllegalArgumentException if the suffixes differ.
+         */
+        Sponge set(Sponge s)
+        {
+            if (s.suffix != suffix) throw new IllegalArgumentException("Sponge suffixes differ.");
+
+            System.arraycopy(s.A, 0, A, 0, A.length);
+            pos = s.pos;
+            squeezing = s.squeezing;
+
+            return this;
+        }
+
+        /**
+         * Returns this thread's reusable sponge for a suffix, emptied.
+         * It is for callers that cannot hold a sponge of their own, and
+         * stays valid only until the next call to local with the same
+         * suffix on the same thread.
+         *
+         * @param suffix the delimited suffix, e.g. SHA3.SHAKE.
+         * @return the sponge.
+         */
+        static Sponge local(int suffix)
+        {
+            Sponge[] pool = LOCAL.get();
+            Sponge s = pool[suffix & 0xFF];
+
+            if (s == null)  pool[suffix & 0xFF] = s = new Sponge(suffix);
+
+            return s.reset();
+        }
+
+        /**
+         * Copies this sponge, state and position included. The copy and
+         * this sponge then continue independently.
+         *
+         * @return the copy.
+         */
+        Sponge copy()
+        {
+            Sponge s = new Sponge(suffix);
+
+            System.arraycopy(A, 0, s.A, 0, A.length);
+            s.pos = pos;
+            s.squeezing = squeezing;
+
+            return s;
+        }
+
+        /**
+         * Absorbs bytes into the sponge.
+         *
+         * @param M the bytes to absorb.
+         * @param off offset of the first byte of M.
+         * @param len number of bytes to absorb.
+         * @return this sponge.
+         * @throws IllegalStateException if the sponge is already squeezing.
+         */
+        Sponge absorb(byte[] M, int off, int len)
+        {
+            if (squeezing) throw new IllegalStateException("Sponge is already squeezing.");
+
+            pos = SHA3.absorb(A, pos, M, off, len);
+
+            return this;
+        }
+
+        /**
+         * Absorbs the remaining bytes of a buffer into the sponge.
+         * The buffer's position is advanced to its limit.
+         *
+         * @param M the bytes to absorb.
+         * @return this sponge.
+         * @throws IllegalStateException if the sponge is already squeezing.
+         */
+        Sponge absorb(ByteBuffer M)
+        {
+            if (squeezing) throw new IllegalStateException("Sponge is already squeezing.");
+
+            pos = SHA3.absorb(A, pos, M);
+
+            return this;
+        }
+
+        /**
+         * Squeezes output bytes out of the sponge, padding it first if
+         * this is the first call. Consecutive calls continue the output.
+         *
+         * @param Z the output buffer.
+         * @param off offset of the first byte written to Z.
+         * @param len number of bytes to squeeze.
+         */
+        void squeeze(byte[] Z, int off, int len)
+        {
+            if (!squeezing)
+            {
+                pad(A, pos, suffix);
+                pos = 0;
+                squeezing = true;
+            }
+
+            pos = SHA3.squeeze(A, pos, Z, off, len);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * FileName: SHA3V.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * KECCAK-f[1600] permutation backend on the jdk.incubator.vector API.
+ * Each plane of five lanes is held in one LongVector, with the three
+ * spare vector lanes kept at zero. theta, rho and chi run across whole
+ * planes; pi moves lanes between planes and is done on the array.
+ * Requires --add-modules jdk.incubator.vector; SHA3 only loads this
+ * class when the module is present.
+ */
+class SHA3V
+{
+    /**
+     * Eight 64-bit lanes: one plane plus three spare lanes.
+     */
+    static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_512;
+    /**
+     * Selects the five lanes of a plane.
+     */
+    private static final VectorMask<Long> PLANE = VectorMask.fromLong(SPECIES, 0x1F);
+    /**
+     * Moves lane x - 1 of a plane into lane x.
+     */
+    private static final VectorShuffle<Long> XM1 = VectorShuffle.fromValues(SPECIES, 4, 0, 1, 2, 3, 5, 6, 7);
+    /**
+     * Moves lane x + 1 of a plane into lane x.
+     */
+    private static final VectorShuffle<Long> XP1 = VectorShuffle.fromValues(SPECIES, 1, 2, 3, 4, 0, 5, 6, 7);
+    /**
+     * Moves lane x + 2 of a plane into lane x.
+     */
+    private static final VectorShuffle<Long> XP2 = VectorShuffle.fromValues(SPECIES, 2, 3, 4, 0, 1, 5, 6, 7);
+    /**
+     * Destination of pi for lane x + 5y, in planes eight lanes apart.
+     */
+    private static final int[] PI = new int[25];
+    /**
+     * The rho offsets of each plane.
+     */
+    private static final LongVector[] RHO = new LongVector[5];
+    /**
+     * 64 minus the rho offsets of each plane, modulo 64.
+     */
+    private static final LongVector[] OHR = new LongVector[5];
+    /**
+     * The round constants, each in lane 0 of a vector.
+     */
+    private static final LongVector[] RC = new LongVector[SHA3.nr];
+    /**
+     * Each thread's scratch planes for KECCAK_p, reused across calls.
+     */
+    private static final ThreadLocal<long[]> PLANES = ThreadLocal.withInitial(() -> new long[80]);
+
+    static
+    {
+        for (int y = 0; y < 5; y++)
+        {
+            long[] rho = new long[8];
+
+            for (int x = 0; x < 5; x++) rho[x] = SHA3.RHO[x + 5 * y];
+            RHO[y] = LongVector.fromArray(SPECIES, rho, 0);
+            OHR[y] = RHO[y].neg().and(63);
+        }
+
+        for (int k = 0; k < 25; k++) PI[k] = 8 * ((2 * (k % 5) + 3 * (k / 5)) % 5) + k / 5;
+
+        for (int i = 0; i < SHA3.nr; i++) RC[i] = LongVector.zero(SPECIES).withLane(0, SHA3.RC[i]);
+    }
+
+    /**
+     * Reports whether this backend runs natively, i.e. the platform's
+     * preferred vector shape holds at least the eight lanes of SPECIES.
+     * @return true if the backend should be used.
+     */
+    static boolean supported()
+    {
+        return LongVector.SPECIES_PREFERRED.length() >= SPECIES.length();
+    }
+
+    /**
+     * KECCAK-f[1600] on the 25 64-bit lanes of the state, in place.
+     * @param A the 25 lanes of the state.
+     */
+    static void KECCAK_p(long[] A)
+    {
+        long[] T = PLANES.get();            // The planes after rho at 0, after pi at 40, eight lanes apart
+        LongVector p0 = LongVector.fromArray(SPECIES, A, 0, PLANE);
+        LongVector p1 = LongVector.fromArray(SPECIES, A, 5, PLANE);
+        LongVector p2 = LongVector.fromArray(SPECIES, A, 10, PLANE);
+        LongVector p3 = LongVector.fromArray(SPECIES, A, 15, PLANE);
+        LongVector p4 = LongVector.fromArray(SPECIES, A, 20, PLANE);
+        LongVector c, c1, d;
+
+        for (int i = 0; i < SHA3.nr; i++)
+        {
+            // theta
+            c = p0.lanewise(VectorOperators.XOR, p1).lanewise(VectorOperators.XOR, p2)
+                    .lanewise(VectorOperators.XOR, p3).lanewise(VectorOperators.XOR, p4);
+            c1 = c.rearrange(XP1);
+            d = c.rearrange(XM1).lanewise(VectorOperators.XOR, c1.lanewise(VectorOperators.LSHL, 1)
+                    .or(c1.lanewise(VectorOperators.LSHR, 63)));
+
+            // rho
+            rol(p0.lanewise(VectorOperators.XOR, d), 0).intoArray(T, 0);
+            rol(p1.lanewise(VectorOperators.XOR, d), 1).intoArray(T, 8);
+            rol(p2.lanewise(VectorOperators.XOR, d), 2).intoArray(T, 16);
+            rol(p3.lanewise(VectorOperators.XOR, d), 3).intoArray(T, 24);
+            rol(p4.lanewise(VectorOperators.XOR, d), 4).intoArray(T, 32);
+
+            // pi
+            for (int k = 0; k < 25; k++) T[40 + PI[k]] = T[8 * (k / 5) + k % 5];
+
+            p0 = LongVector.fromArray(SPECIES, T, 40);
+            p1 = LongVector.fromArray(SPECIES, T, 48);
+            p2 = LongVector.fromArray(SPECIES, T, 56);
+            p3 = LongVector.fromArray(SPECIES, T, 64);
+            p4 = LongVector.fromArray(SPECIES, T, 72);
+
+            // chi
+            p0 = p0.lanewise(VectorOperators.XOR, p0.rearrange(XP1).not().and(p0.rearrange(XP2)));
+            p1 = p1.lanewise(VectorOperators.XOR, p1.rearrange(XP1).not().and(p1.rearrange(XP2)));
+            p2 = p2.lanewise(VectorOperators.XOR, p2.rearrange(XP1).not().and(p2.rearrange(XP2)));
+            p3 = p3.lanewise(VectorOperators.XOR, p3.rearrange(XP1).not().and(p3.rearrange(XP2)));
+            p4 = p4.lanewise(VectorOperators.XOR, p4.rearrange(XP1).not().and(p4.rearrange(XP2)));
+
+            // iota
+            p0 = p0.lanewise(VectorOperators.XOR, RC[i]);
+        }
+
+        p0.intoArray(A, 0, PLANE);
+        p1.intoArray(A, 5, PLANE);
+        p2.intoArray(A, 10, PLANE);
+        p3.intoArray(A, 15, PLANE);
+        p4.intoArray(A, 20, PLANE);
+    }
+
+    /**
+     * Rotates each lane of a plane left by its rho offset.
+     * @param p the plane.
+     * @param y the plane index.
+     * @return the rotated plane.
+     */
+    private static LongVector rol(LongVector p, int y)
+    {
+        return p.lanewise(VectorOperators.LSHL, RHO[y]).or(p.lanewise(VectorOperators.LSHR, OHR[y]));
+    }
+}
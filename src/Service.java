@@ -0,0 +1,442 @@
+/**
+ * FileName: Service.java
+ * CreatedOn: October 17, 2026
+ *
+ * @author ZacInman
+ * @version 1.0.101726
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The operations of Main as an embeddable service. Messages, keys,
+ * cryptograms and signatures are byte arrays in the formats of
+ * Container, and every operation returns a CompletableFuture that
+ * completes on the service's executor.
+ *
+ * At most maxPending operations are queued or running at once. When
+ * that many are in flight, the caller submitting the next operation
+ * blocks until one finishes, so a fast producer is slowed down instead
+ * of queueing without bound. A service is meant to live as long as its
+ * callers: the generator table, the KMAC prefix cache, the KeyHandle
+ * cache and the JIT-compiled code stay warm between operations. Any
+ * number of threads may use one service at once. The SHA3, DF and EC
+ * code it runs keeps no shared mutable state outside the synchronized
+ * KMAC prefix and KeyHandle caches and per-thread sponges. Callbacks
+ * that submit further operations should be attached with the async
+ * variants of CompletableFuture, so that a pool thread never waits on
+ * the service's own permits.
+ */
+public final class Service implements AutoCloseable
+{
+    /**
+     * The executor the operations run on.
+     */
+    private final ExecutorService executor;
+    /**
+     * One permit per operation that may be queued or running.
+     */
+    private final Semaphore permits;
+    /**
+     * The largest number of operations queued or running at once.
+     */
+    private final int maxPending;
+
+    /**
+     * Constructs a service on an executor, for example a fixed pool, or
+     * Executors.newVirtualThreadPerTaskExecutor() on Java 21 and later.
+     * The service shuts the executor down when it is closed.
+     *
+     * @param executor the executor the operations run on.
+     * @param maxPending the largest number of operations queued or running at once.
+     * @throws IllegalArgumentException if maxPending is not positive.
+     */
+    public Service(ExecutorService executor, int maxPending)
+    {
+        if (maxPending <= 0)    throw new IllegalArgumentException("maxPending must be positive.");
+
+        this.executor = executor;
+        this.permits = new Semaphore(maxPending);
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Constructs a service on a fixed pool of daemon threads.
+     *
+     * @param threads the number of threads.
+     * @param maxPending the largest number of operations queued or running at once.
+     * @return the service.
+     */
+    public static Service fixed(int threads, int maxPending)
+    {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task ->
+        {
+            Thread t = new Thread(task, "service-" + count.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        };
+
+        return new Service(Executors.newFixedThreadPool(threads, factory), maxPending);
+    }
+
+    /**
+     * Warms the service up: builds the generator table and runs each
+     * operation once, so the first real requests do not pay for class
+     * initialization and interpretation.
+     *
+     * @return a future completing when the service is warm.
+     */
+    public CompletableFuture<Void> warmUp()
+    {
+        byte[] m = new byte[64];
+
+        return submit(() ->
+        {
+            verifyNow(publicKeyNow(""), m, signNow("", m));
+            decryptNow("", encryptNow("", m));
+            tagNow("", m);
+            hashNow(m);
+
+            return null;
+        });
+    }
+
+    /**
+     * Computes a plain cryptographic hash: KMACXOF256("", m, 512, "D").
+     *
+     * @param m the message.
+     * @return a future of the 64-byte hash.
+     */
+    public CompletableFuture<byte[]> hash(byte[] m)
+    {
+        return submit(() -> hashNow(m));
+    }
+
+    /**
+     * Computes an authentication tag: KMACXOF256(pw, m, 512, "T").
+     *
+     * @param pw the passphrase.
+     * @param m the message.
+     * @return a future of the 64-byte tag.
+     */
+    public CompletableFuture<byte[]> tag(String pw, byte[] m)
+    {
+        return submit(() -> tagNow(pw, m));
+    }
+
+    /**
+     * Encrypts a message symmetrically under a passphrase.
+     *
+     * @param pw the passphrase.
+     * @param m the message.
+     * @return a future of the CRYPTOGRAM container.
+     */
+    public CompletableFuture<byte[]> encrypt(String pw, byte[] m)
+    {
+        return submit(() -> encryptNow(pw, m));
+    }
+
+    /**
+     * Decrypts a symmetric cryptogram under a passphrase.
+     *
+     * @param pw the passphrase.
+     * @param cryptogram the CRYPTOGRAM container.
+     * @return a future of the message, failing with an IOException if the
+     *          container is malformed or its tag is wrong.
+     */
+    public CompletableFuture<byte[]> decrypt(String pw, byte[] cryptogram)
+    {
+        return submit(() -> decryptNow(pw, cryptogram));
+    }
+
+    /**
+     * Computes the elliptic public key of a passphrase.
+     *
+     * @param pw the passphrase.
+     * @return a future of the PUBLIC_KEY container.
+     */
+    public CompletableFuture<byte[]> publicKey(String pw)
+    {
+        return submit(() -> publicKeyNow(pw));
+    }
+
+    /**
+     * Signs a message under the private key of a passphrase.
+     *
+     * @param pw the passphrase.
+     * @param m the message.
+     * @return a future of the SIGNATURE container.
+     */
+    public CompletableFuture<byte[]> sign(String pw, byte[] m)
+    {
+        return submit(() -> signNow(pw, m));
+    }
+
+    /**
+     * Verifies a signature.
+     *
+     * @param publicKey the PUBLIC_KEY container.
+     * @param m the message.
+     * @param signature the SIGNATURE container.
+     * @return a future of true IFF the signature is accepted, failing with
+     *          an IOException if a container is malformed.
+     */
+    public CompletableFuture<Boolean> verify(byte[] publicKey, byte[] m, byte[] signature)
+    {
+        return submit(() -> verifyNow(publicKey, m, signature));
+    }
+
+    /**
+     * The number of operations queued or running.
+     *
+     * @return the number of operations in flight.
+     */
+    public int pending()
+    {
+        return maxPending - permits.availablePermits();
+    }
+
+    /**
+     * Stops accepting operations, waits for those in flight to finish and
+     * shuts the executor down.
+     */
+    public void close()
+    {
+        executor.shutdown();
+
+        try
+        {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+        catch (InterruptedException e)
+        {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs an operation on the executor once a permit is free, blocking
+     * the caller until then.
+     *
+     * @param task the operation.
+     * @param <T> the result type.
+     * @return a future of the result. It fails if the task throws, if
+     *          the caller is interrupted while waiting for a permit, or if
+     *          the executor rejects the task.
+     */
+    <T> CompletableFuture<T> submit(Callable<T> task)
+    {
+        CompletableFuture<T> f = new CompletableFuture<>();
+
+        try
+        {
+            permits.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            f.completeExceptionally(e);
+            return f;
+        }
+
+        try
+        {
+            executor.execute(() ->
+            {
+                T result = null;
+                Throwable error = null;
+
+                try
+                {
+                    result = task.call();
+                }
+                catch (Throwable e)
+                {
+                    error = e;
+                }
+                finally
+                {
+                    permits.release();             // Before completing, for callbacks that submit again
+                }
+
+                if (error == null)  f.complete(result);
+                else f.completeExceptionally(error);
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            permits.release();
+            f.completeExceptionally(e);
+        }
+
+        return f;
+    }
+
+    /**
+     * Computes a plain hash on the calling thread.
+     *
+     * @param m the message.
+     * @return the 64-byte hash.
+     */
+    private static byte[] hashNow(byte[] m)
+    {
+        return DF.KMAC.cached(new byte[0], Main.utf8("D")).update(m, 0, m.length).squeeze(64);
+    }
+
+    /**
+     * Computes an authentication tag on the calling thread.
+     *
+     * @param pw the passphrase.
+     * @param m the message.
+     * @return the 64-byte tag.
+     */
+    private static byte[] tagNow(String pw, byte[] m)
+    {
+        return Main.kmac(pw, m, 64, "T");
+    }
+
+    /**
+     * Encrypts symmetrically on the calling thread.
+     *
+     * @param pw the passphrase.
+     * @param m the message.
+     * @return the CRYPTOGRAM container.
+     * @throws IOException never, as the container is written to memory.
+     */
+    private static byte[] encryptNow(String pw, byte[] m) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(m.length + 256);
+
+        try (Container.Writer w = new Container.Writer(Channels.newChannel(out), Container.CRYPTOGRAM))
+        {
+            Main.writeCryptogram(w, pw, Channels.newChannel(new ByteArrayInputStream(m)), m.length);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decrypts symmetrically on the calling thread.
+     *
+     * @param pw the passphrase.
+     * @param cryptogram the CRYPTOGRAM container.
+     * @return the message.
+     * @throws IOException if the container is malformed or its tag is wrong.
+     */
+    private static byte[] decryptNow(String pw, byte[] cryptogram) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(cryptogram.length);
+
+        try (Container.Reader r = reader(cryptogram, Container.CRYPTOGRAM))
+        {
+            if (!Main.readCryptogram(r, pw, Channels.newChannel(out)))
+                throw new IOException("t' does not equal t.");
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Computes the public key container on the calling thread.
+     *
+     * @param pw the passphrase.
+     * @return the PUBLIC_KEY container.
+     * @throws IOException never, as the container is written to memory.
+     */
+    private static byte[] publicKeyNow(String pw) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        KeyHandle key = KeyHandle.acquire(pw);
+
+        try (Container.Writer w = new Container.Writer(Channels.newChannel(out), Container.PUBLIC_KEY))
+        {
+            w.putPoint(key.publicKey());
+        }
+        finally
+        {
+            key.release();
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Signs on the calling thread.
+     *
+     * @param pw the passphrase.
+     * @param m the message.
+     * @return the SIGNATURE container.
+     * @throws IOException never, as the container is written to memory.
+     */
+    private static byte[] signNow(String pw, byte[] m) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        KeyHandle key = KeyHandle.acquire(pw);
+
+        try (Container.Writer w = new Container.Writer(Channels.newChannel(out), Container.SIGNATURE))
+        {
+            Main.writeSignature(w, key, m, null);
+        }
+        finally
+        {
+            key.release();
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Verifies a signature on the calling thread.
+     *
+     * @param publicKey the PUBLIC_KEY container.
+     * @param m the message.
+     * @param signature the SIGNATURE container.
+     * @return true IFF the signature is accepted.
+     * @throws IOException if a container is malformed.
+     */
+    private static boolean verifyNow(byte[] publicKey, byte[] m, byte[] signature) throws IOException
+    {
+        EC.Point V;
+
+        try (Container.Reader r = reader(publicKey, Container.PUBLIC_KEY))
+        {
+            V = r.getPoint();
+        }
+
+        try (Container.Reader r = reader(signature, Container.SIGNATURE))
+        {
+            return Main.Signed.read(m, r, V).verify();
+        }
+    }
+
+    /**
+     * Opens a container held in memory.
+     *
+     * @param B the container bytes.
+     * @param type the expected container type.
+     * @return the reader.
+     * @throws IOException if the header is not that of a container of
+     *          this version and type.
+     */
+    private static Container.Reader reader(byte[] B, int type) throws IOException
+    {
+        return new Container.Reader(Channels.newChannel(new ByteArrayInputStream(B)), type);
+    }
+}